@@ -0,0 +1,76 @@
+package com.syter6.jdbr;
+
+import com.syter6.jdbr.models.Product;
+import com.syter6.jdbr.repositories.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * The throughput of the async repository on virtual threads, and on a fixed pool of platform threads.
+ * Every invocation starts OPERATIONS lookups at once and waits for all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AsyncThroughputBenchmark {
+
+	private static final int ROWS = 1_000;
+	private static final int OPERATIONS = 1_000;
+	private static final int PLATFORM_THREADS = 200;
+
+	@Param({"virtual", "platform"})
+	public String threads;
+
+	private ProductRepository products;
+	private ExecutorService platform;
+	private AsyncDataRepository<Product> repository;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		TestDatabase.setUp();
+
+		this.products = new ProductRepository();
+		this.products.truncate();
+
+		List<Product> products = new ArrayList<>();
+		for (int i = 1; i <= ROWS; i++) {
+			products.add(new Product(i, "Product " + i));
+		}
+		this.products.createAll(products);
+
+		if (this.threads.equals("platform")) {
+			this.platform = Executors.newFixedThreadPool(PLATFORM_THREADS);
+			this.repository = new AsyncDataRepository<>(this.products, this.platform, null);
+		} else {
+			this.repository = new AsyncDataRepository<>(this.products);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (this.platform != null) {
+			this.platform.shutdown();
+		}
+		this.products.truncate();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPERATIONS)
+	public void getById() {
+		List<CompletableFuture<Product>> futures = new ArrayList<>(OPERATIONS);
+		for (int i = 0; i < OPERATIONS; i++) {
+			futures.add(this.repository.getById(1 + i % ROWS));
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+	}
+}
@@ -0,0 +1,96 @@
+package com.syter6.jdbr;
+
+import com.syter6.jdbr.models.Product;
+import com.syter6.jdbr.models.User;
+import com.syter6.jdbr.repositories.ProductRepository;
+import com.syter6.jdbr.repositories.UserRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * The cost of binding parameters, per column type and per model. Statements are only bound, never executed.
+ * In this package, since the bind methods of the repository are protected.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BindBenchmark {
+
+	// One column of every type: STRING, INT, DATE, DOUBLE and BOOL.
+	@Param({"name", "clearance", "birthDate", "grade", "verified"})
+	public String column;
+
+	private ProductRepository products;
+	private UserRepository users;
+
+	private Product product;
+	private User user;
+	private int column_index;
+
+	private Connection conn;
+	private PreparedStatement single;
+	private PreparedStatement product_insert;
+	private PreparedStatement user_insert;
+	private PreparedStatement user_update;
+
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		TestDatabase.setUp();
+
+		this.products = new ProductRepository();
+		this.users = new UserRepository();
+		this.product = new Product(1, "Product 1");
+		this.user = new User("user@example.com", "User", 3, LocalDate.of(2000, 1, 1), 7.5, true);
+
+		for (int i = 0; i < this.users.columnDefinitions.size(); i++) {
+			if (this.users.columnDefinitions.get(i).name.equalsIgnoreCase(this.column)) {
+				this.column_index = i;
+			}
+		}
+
+		this.conn = DriverManager.getConnection(TestDatabase.URL, "sa", "");
+		this.single = this.conn.prepareStatement("SELECT ?");
+		this.product_insert = this.conn.prepareStatement(this.products.insert_query);
+		this.user_insert = this.conn.prepareStatement(this.users.insert_query);
+		this.user_update = this.conn.prepareStatement(this.users.update_query);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		this.conn.close();
+	}
+
+	@Benchmark
+	public PreparedStatement bindColumn() throws SQLException {
+		this.users.bindColumn(this.single, 1, this.user, this.column_index);
+		return this.single;
+	}
+
+	@Benchmark
+	public PreparedStatement bindProductInsert() throws SQLException {
+		this.products.bindInsert(this.product_insert, this.product, this.conn);
+		return this.product_insert;
+	}
+
+	@Benchmark
+	public PreparedStatement bindUserInsert() throws SQLException {
+		this.users.bindInsert(this.user_insert, this.user, this.conn);
+		return this.user_insert;
+	}
+
+	@Benchmark
+	public PreparedStatement bindUserUpdate() throws SQLException {
+		this.users.bindUpdate(this.user_update, this.user);
+		return this.user_update;
+	}
+}
@@ -0,0 +1,99 @@
+package com.syter6.jdbr;
+
+import com.syter6.jdbr.models.Product;
+import com.syter6.jdbr.models.User;
+import com.syter6.jdbr.repositories.ProductRepository;
+import com.syter6.jdbr.repositories.UserRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * The cost of reading rows into models per column type, by only selecting a single column of the users or product table.
+ * Compare with -prof gc to see the allocations per row of each type.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HydrationBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Users {
+
+		// One column of every type: STRING, INT, DATE, DOUBLE and BOOL.
+		@Param({"name", "clearance", "birthDate", "grade", "verified"})
+		public String column;
+
+		@Param({"1000", "10000"})
+		public int rows;
+
+		private UserRepository users;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			TestDatabase.setUp();
+
+			this.users = new UserRepository();
+			this.users.truncate();
+
+			List<User> users = new ArrayList<>();
+			for (int i = 1; i <= this.rows; i++) {
+				users.add(new User("user" + i + "@example.com", "User " + i, i % 10, LocalDate.of(2000, 1, 1).plusDays(i % 365), i % 100 / 10.0, i % 2 == 0));
+			}
+			this.users.createAll(users);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.users.truncate();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Products {
+
+		// The int primary key, and a STRING.
+		@Param({"num", "name"})
+		public String column;
+
+		@Param({"1000", "10000"})
+		public int rows;
+
+		private ProductRepository products;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			TestDatabase.setUp();
+
+			this.products = new ProductRepository();
+			this.products.truncate();
+
+			List<Product> products = new ArrayList<>();
+			for (int i = 1; i <= this.rows; i++) {
+				products.add(new Product(i, "Product " + i));
+			}
+			this.products.createAll(products);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.products.truncate();
+		}
+	}
+
+	@Benchmark
+	public ArrayList<User> hydrateUserColumn(Users state) {
+		return state.users.query().select(state.column).list();
+	}
+
+	@Benchmark
+	public ArrayList<Product> hydrateProductColumn(Products state) {
+		return state.products.query().select(state.column).list();
+	}
+}
@@ -0,0 +1,114 @@
+package com.syter6.jdbr;
+
+import com.syter6.jdbr.models.Product;
+import com.syter6.jdbr.models.User;
+import com.syter6.jdbr.repositories.ProductRepository;
+import com.syter6.jdbr.repositories.UserRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * The throughput of the basic repository operations, on tables of several sizes.
+ * Neither repository enables the entity cache, so every lookup goes to the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+	@Param({"100", "10000"})
+	public int rows;
+
+	private ProductRepository products;
+	private UserRepository users;
+
+	private ArrayList<String> product_values;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		TestDatabase.setUp();
+
+		this.products = new ProductRepository();
+		this.users = new UserRepository();
+		this.products.truncate();
+		this.users.truncate();
+
+		List<Product> products = new ArrayList<>();
+		List<User> users = new ArrayList<>();
+		for (int i = 1; i <= this.rows; i++) {
+			products.add(new Product(i, "Product " + i));
+			users.add(new User(email(i), "User " + i, i % 10, LocalDate.of(2000, 1, 1).plusDays(i % 365), i % 100 / 10.0, i % 2 == 0));
+		}
+		this.products.createAll(products);
+		this.users.createAll(users);
+
+		this.product_values = new ArrayList<>(List.of("1", "Product 1"));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.products.truncate();
+		this.users.truncate();
+	}
+
+	private static String email(int i) {
+		return "user" + i + "@example.com";
+	}
+
+	private int randomId() {
+		return ThreadLocalRandom.current().nextInt(1, this.rows + 1);
+	}
+
+	@Benchmark
+	public ArrayList<Product> getAllProducts() {
+		return this.products.getAll();
+	}
+
+	@Benchmark
+	public ArrayList<User> getAllUsers() {
+		return this.users.getAll();
+	}
+
+	@Benchmark
+	public Product getProductById() {
+		return this.products.getById(this.randomId());
+	}
+
+	@Benchmark
+	public User getUserById() {
+		return this.users.getById(email(this.randomId()));
+	}
+
+	@Benchmark
+	public boolean createAndDeleteProduct() {
+		Product product = new Product(this.rows + 1, "New product");
+		return this.products.create(product) && this.products.delete(product);
+	}
+
+	@Benchmark
+	public boolean updateProduct() {
+		int id = this.randomId();
+		return this.products.update(new Product(id, "Product " + id));
+	}
+
+	@Benchmark
+	public boolean updateUser() {
+		int id = this.randomId();
+		return this.users.update(new User(email(id), "User " + id, id % 10, LocalDate.of(2000, 1, 1), 5.0, true));
+	}
+
+	@Benchmark
+	@SuppressWarnings("deprecation")
+	public Product generateProduct() {
+		return this.products.generate(this.product_values);
+	}
+}
@@ -0,0 +1,206 @@
+package com.syter6.jdbr;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ *
+ * Runs the operations of a repository asynchronously, returning CompletableFutures.
+ * Every operation runs on a virtual thread of its own. At most as many operations run at once
+ * as the pool has connections; the rest wait cheaply on their virtual threads.
+ * Cancelling a future, or letting it time out, cancels the running statement with Statement.cancel().
+ */
+public class AsyncDataRepository<T> {
+
+	private static final Executor VIRTUAL_THREADS = task -> Thread.ofVirtual().name("jdbr-async").start(task);
+
+	// Fires the timeouts. Timeouts of operations that completed in time are removed right away.
+	private static final ScheduledThreadPoolExecutor TIMEOUTS = new ScheduledThreadPoolExecutor(1, task -> {
+		Thread thread = new Thread(task, "jdbr-async-timeout");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	static {
+		TIMEOUTS.setRemoveOnCancelPolicy(true);
+	}
+
+	// One limit per pool, shared by every async repository using it.
+	private static final ConcurrentHashMap<ConnectionPool, Semaphore> permits = new ConcurrentHashMap<>();
+
+	private final BaseRepository<T> repository;
+	private final Executor executor;
+	private final Semaphore semaphore;
+	private final Duration timeout;
+
+	public AsyncDataRepository(BaseRepository<T> repository) {
+		this(repository, null);
+	}
+
+	/**
+	 *
+	 * @param repository	The repository doing the work.
+	 * @param timeout		The default timeout of every operation. Null for no timeout.
+	 */
+	public AsyncDataRepository(BaseRepository<T> repository, Duration timeout) {
+		this(repository, VIRTUAL_THREADS, timeout);
+	}
+
+	/**
+	 *
+	 * @param repository	The repository doing the work.
+	 * @param executor		Runs the operations, for example a pool of platform threads.
+	 * @param timeout		The default timeout of every operation. Null for no timeout.
+	 */
+	public AsyncDataRepository(BaseRepository<T> repository, Executor executor, Duration timeout) {
+		this.repository = repository;
+		this.executor = executor;
+		this.timeout = timeout;
+		this.semaphore = permits.computeIfAbsent(repository.pool, pool -> new Semaphore(pool.getMaxSize(), true));
+	}
+
+	/**
+	 *
+	 * Runs any operation on the repository asynchronously.
+	 *
+	 * @param operation		The operation to be run.
+	 * @param timeout		How long the operation may take before it is cancelled. Null for no timeout.
+	 * @return      		The result of the operation. Cancelling it cancels the running statement.
+	 */
+	public <R> CompletableFuture<R> call(Function<BaseRepository<T>, R> operation, Duration timeout) {
+		Task<R> task = new Task<>(operation);
+		this.executor.execute(task::run);
+
+		if (timeout != null) {
+			ScheduledFuture<?> timer = TIMEOUTS.schedule(() -> task.timeout(timeout), timeout.toMillis(), TimeUnit.MILLISECONDS);
+			task.whenComplete((result, ex) -> timer.cancel(false));
+		}
+
+		return task;
+	}
+
+	public <R> CompletableFuture<R> call(Function<BaseRepository<T>, R> operation) {
+		return this.call(operation, this.timeout);
+	}
+
+	public CompletableFuture<ArrayList<T>> getAll() {
+		return this.call(BaseRepository::getAll);
+	}
+
+	public CompletableFuture<ArrayList<T>> getAll(String query) {
+		return this.call(repository -> repository.getAll(query));
+	}
+
+	public CompletableFuture<T> getBy(String column, String value) {
+		return this.call(repository -> repository.getBy(column, value));
+	}
+
+	public CompletableFuture<T> getById(int primary_key) {
+		return this.call(repository -> repository.getById(primary_key));
+	}
+
+	public CompletableFuture<T> getById(String primary_key) {
+		return this.call(repository -> repository.getById(primary_key));
+	}
+
+	public <K> CompletableFuture<Map<K, T>> getByIds(Collection<K> primary_keys) {
+		return this.call(repository -> repository.getByIds(primary_keys));
+	}
+
+	public CompletableFuture<Boolean> create(T data) {
+		return this.call(repository -> repository.create(data));
+	}
+
+	public CompletableFuture<BatchResult> createAll(Collection<T> data) {
+		return this.call(repository -> repository.createAll(data));
+	}
+
+	public CompletableFuture<Boolean> updateField(String primary_key, String column, String new_value, ColumnDefinitionType column_type) {
+		return this.call(repository -> repository.updateField(primary_key, column, new_value, column_type));
+	}
+
+	public CompletableFuture<Boolean> update(T data) {
+		return this.call(repository -> repository.update(data));
+	}
+
+	public CompletableFuture<Boolean> updateChanged(T original, T modified) {
+		return this.call(repository -> repository.updateChanged(original, modified));
+	}
+
+	public CompletableFuture<BatchResult> updateAll(Collection<T> data) {
+		return this.call(repository -> repository.updateAll(data));
+	}
+
+	public CompletableFuture<Boolean> delete(T data) {
+		return this.call(repository -> repository.delete(data));
+	}
+
+	public CompletableFuture<BatchResult> deleteAll(Collection<T> data) {
+		return this.call(repository -> repository.deleteAll(data));
+	}
+
+	public CompletableFuture<Boolean> truncate() {
+		return this.call(BaseRepository::truncate);
+	}
+
+	private class Task<R> extends CompletableFuture<R> {
+
+		private final Function<BaseRepository<T>, R> operation;
+		private final CancellationScope scope = new CancellationScope();
+
+		Task(Function<BaseRepository<T>, R> operation) {
+			this.operation = operation;
+		}
+
+		void run() {
+			if (this.isDone()) {
+				return;
+			}
+
+			try {
+				semaphore.acquire();
+			} catch (InterruptedException ex) {
+				this.completeExceptionally(ex);
+				return;
+			}
+
+			this.scope.enter();
+			try {
+				if (!this.isDone()) {
+					this.complete(this.operation.apply(repository));
+				}
+			} catch (Throwable ex) {
+				this.completeExceptionally(ex);
+			} finally {
+				this.scope.exit();
+				semaphore.release();
+			}
+		}
+
+		void timeout(Duration timeout) {
+			if (this.completeExceptionally(new TimeoutException("Timed out after " + timeout.toMillis() + "ms"))) {
+				this.scope.cancel();
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean may_interrupt) {
+			boolean cancelled = super.cancel(may_interrupt);
+			if (cancelled) {
+				this.scope.cancel();
+			}
+			return cancelled;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package com.syter6.jdbr;
+
+import java.sql.Connection;
+
+/**
+ *
+ * Leaves the primary key to the AUTO_INCREMENT of the table.
+ * The generated key is read with getGeneratedKeys() and written back into the created model.
+ */
+public class AutoIncrementIdGenerator implements IdGenerator {
+
+	@Override
+	public int nextId(Connection conn) {
+		throw new UnsupportedOperationException("The database generates AUTO_INCREMENT keys");
+	}
+
+	@Override
+	public boolean isGeneratedByDatabase() {
+		return true;
+	}
+}
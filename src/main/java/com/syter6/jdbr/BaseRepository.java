@@ -1,451 +1,2003 @@
 package com.syter6.jdbr;
 
-import java.lang.reflect.Field;
+import com.mysql.cj.jdbc.JdbcStatement;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
-import java.time.LocalDate;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
-
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ *
+ * The base of every repository. A repository is safe to share between threads:
+ * its metadata is immutable after construction, and every operation borrows its own connection from the pool.
+ */
 public abstract class BaseRepository<T> implements IDataRepository<T>  {
 
-	protected String table_name;
+	protected final String table_name;
+
+	protected final List<ColumnDefinition> columnDefinitions;
+	protected final ColumnDefinition pk;
+
+	protected final ConnectionPool pool;
+
+	// Sends reads to the read replicas in DatabaseAuth.REPLICA_URLS, if there are any.
+	protected final ReplicaRouter router;
+
+	protected final Supplier<T> supplier;
+	protected final EntityMapper<T> mapper;
+
+	// The codec of every column, picked by the type of its field. See TypeCodecs.
+	protected final TypeCodec<Object>[] codecs;
+
+	// Optional, see enableCache().
+	protected volatile EntityCache<T> cache;
+	protected volatile KeyCoalescer<T> coalescer;
 
-	protected ArrayList<ColumnDefinition> columnDefinitions;
-	protected ColumnDefinition pk;
+	// Generates int primary keys. Shared by all repositories of a table, so ids are reserved only once.
+	private static final ConcurrentHashMap<String, IdGenerator> id_generators = new ConcurrentHashMap<>();
+	protected volatile IdGenerator id_generator;
 
-	protected Connection conn;
+	// The SQL of the hot paths, built once from the column definitions.
+	protected final String select_by_pk_query;
+	protected final String insert_query;
+	protected final String update_query;
+	protected final String delete_query;
+	protected final String upsert_query;
+	protected final String insert_ignore_query;
 
-	protected Supplier<T> supplier;
+	// Number of keys per `IN` query of getByIds() and getAllBy(). The last chunk is padded up to one of these sizes,
+	// so only a few distinct statements end up in the statement cache.
+	private static final int[] IN_CHUNK_SIZES = {1, 4, 16, 64, 256};
 
+	@SuppressWarnings("unchecked")
 	public BaseRepository(String table_name, Supplier<T> supplier) {
-		this.conn = this.connectToDatabase();
+		this.router = ReplicaRouter.getInstance();
+		this.pool = this.router.getPrimary();
 
 		this.table_name = table_name;
 		this.supplier = supplier;
 
 		this.columnDefinitions = this.getColumnDefinitions();
 		this.pk = this.columnDefinitions.get(0);
+
+		this.mapper = EntityMapper.forClass((Class<T>) supplier.get().getClass(), this.columnDefinitions);
+
+		this.codecs = new TypeCodec[this.columnDefinitions.size()];
+		for (int i = 0; i < this.codecs.length; i++) {
+			this.codecs[i] = TypeCodecs.forType(this.mapper.getFieldType(i), this.columnDefinitions.get(i));
+		}
+
+		this.id_generator = id_generators.computeIfAbsent(this.pool.getUrl() + "/" + this.table_name,
+				key -> new MaxIdGenerator(this.table_name, this.pk.name));
+
+		this.select_by_pk_query = this.selectByQuery(this.pk.name);
+		this.insert_query = this.insertQuery();
+		this.update_query = this.updateQuery();
+		this.delete_query = String.format("DELETE FROM %s WHERE %s = ?", this.table_name, this.pk.name);
+		this.upsert_query = this.upsertQuery();
+		this.insert_ignore_query = this.insert_query.replaceFirst("^INSERT INTO ", "INSERT IGNORE INTO ");
 	}
 
+	/**
+	 *
+	 * Repositories no longer hold a connection of their own; every operation borrows one from the pool.
+	 * Use ConnectionPool.closeAll() to close the connections when shutting down.
+	 */
+	@Deprecated
 	public void closeConnection() {
+	}
+
+	/**
+	 *
+	 * Caches the records found by primary key, so repeated lookups don't go to the database.
+	 * The cache is shared by all repositories of the table and invalidated by their writes;
+	 * changes made elsewhere show up once the TTL expires.
+	 * Meant to be called from the constructor of a repository whose records rarely change.
+	 *
+	 * @param max_size		The maximum number of cached records.
+	 * @param ttl_millis	How long a record stays cached. 0 or less keeps it until it is evicted or invalidated.
+	 */
+	protected void enableCache(int max_size, long ttl_millis) {
+		this.cache = EntityCache.shared(this.pool.getUrl() + "/" + this.table_name, max_size, ttl_millis, this::copy);
+	}
+
+	/**
+	 *
+	 * Merges lookups by primary key from different threads that arrive within the window into one `IN` query.
+	 * Worth it when many threads look up records by primary key at the same time, for example with AsyncDataRepository;
+	 * a lone lookup is delayed by the window.
+	 *
+	 * @param window_millis	How long the first lookup waits for others to join it.
+	 * @param max_batch		The number of keys after which the query is sent without waiting.
+	 */
+	protected void enableCoalescing(long window_millis, int max_batch) {
+		this.coalescer = new KeyCoalescer<>(this::findByIds, this::copy, window_millis, max_batch);
+	}
+
+	/**
+	 *
+	 * Changes how int primary keys are generated for records created with a primary key of 0.
+	 * By default, the highest key is looked up for every small block of keys counted up in memory (MaxIdGenerator).
+	 * The generator is shared by all repositories of the table.
+	 *
+	 * @param generator		The generator to be used, for example a SequenceIdGenerator or AutoIncrementIdGenerator.
+	 */
+	protected void setIdGenerator(IdGenerator generator) {
+		id_generators.put(this.pool.getUrl() + "/" + this.table_name, generator);
+		this.id_generator = generator;
+	}
+
+	public EntityCache<T> getCache() {
+		return this.cache;
+	}
+
+	T copy(T data) {
+		T copy = this.supplier.get();
+		this.mapper.copy(data, copy);
+		return copy;
+	}
+
+	protected void invalidate(T data) {
+		if (this.cache != null && data != null) {
+			this.invalidate(String.valueOf(this.mapper.get(data, 0)));
+		}
+	}
+
+	/**
+	 *
+	 * Removes a record from the cache. Within a Transaction, it is removed again when the transaction ends,
+	 * in case another thread cached the old record before the change was committed.
+	 */
+	protected void invalidate(String primary_key) {
+		EntityCache<T> cache = this.cache;
+		if (cache == null) {
+			return;
+		}
+
+		cache.invalidate(primary_key);
+
+		Transaction transaction = Transaction.current();
+		if (transaction != null) {
+			transaction.afterCompletion(() -> cache.invalidate(primary_key));
+		}
+	}
+
+	protected void invalidateAll() {
+		EntityCache<T> cache = this.cache;
+		if (cache == null) {
+			return;
+		}
+
+		cache.invalidateAll();
+
+		Transaction transaction = Transaction.current();
+		if (transaction != null) {
+			transaction.afterCompletion(cache::invalidateAll);
+		}
+	}
+
+	/**
+	 *
+	 * Reports a failed operation. Within a Transaction, the transaction is rolled back when it ends.
+	 */
+	protected void reportError(SQLException ex) {
+		System.out.println(ex.getMessage());
+
+		Transaction transaction = Transaction.current();
+		if (transaction != null) {
+			transaction.setRollbackOnly();
+		}
+	}
+
+	/**
+	 *
+	 * Reports an operation to DatabaseConfig.LISTENER, and to its slow query log when it took too long.
+	 * A stage that wasn't reached (0) is counted as part of the stage before it, where the operation failed.
+	 *
+	 * @param  start		when the operation started, from System.nanoTime().
+	 * @param  acquired		when the connection had been borrowed, or 0.
+	 * @param  executed		when the statement had been executed, or 0.
+	 */
+	protected void record(Operation operation, String sql, boolean success, int rows, long bytes_bound, long start, long acquired, long executed) {
+		RepositoryListener listener = DatabaseConfig.LISTENER;
+		if (listener == null) {
+			return;
+		}
+
+		long end = System.nanoTime();
+		acquired = acquired == 0 ? end : acquired;
+		executed = executed == 0 ? end : executed;
+
+		listener.operationCompleted(this.table_name, operation, success, rows, bytes_bound, acquired - start, executed - acquired, end - executed);
+
+		long slow_millis = DatabaseConfig.SLOW_QUERY_MILLIS;
+		if (slow_millis > 0 && end - start >= TimeUnit.MILLISECONDS.toNanos(slow_millis)) {
+			listener.slowQuery(this.table_name, operation, sql, acquired - start, executed - acquired, end - executed);
+		}
+	}
+
+	/**
+	 *
+	 * @return 			the estimated size of the columns of the model, as bound to a statement. 0 when nobody listens.
+	 */
+	protected long boundBytes(T data) {
+		if (DatabaseConfig.LISTENER == null) {
+			return 0;
+		}
+
+		long bytes = 0;
+		for (int i = 0; i < this.columnDefinitions.size(); i++) {
+			Class<?> field_type = this.mapper.getFieldType(i);
+			if (field_type == int.class) {
+				bytes += Integer.BYTES;
+			} else if (field_type == boolean.class) {
+				bytes += 1;
+			} else if (field_type.isPrimitive()) {
+				bytes += Long.BYTES;
+			} else {
+				bytes += switch (this.mapper.get(data, i)) {
+					case null -> 0;
+					case String value -> value.length();
+					case byte[] value -> value.length;
+					case Integer value -> Integer.BYTES;
+					case Boolean value -> 1;
+					case UUID value -> 16;
+					default -> Long.BYTES;
+				};
+			}
+		}
+
+		return bytes;
+	}
+
+	/**
+	 *
+	 * Borrows a connection to the primary from the pool. Closing it returns it to the pool.
+	 *
+	 * @return      a connection in autocommit mode, or the connection of the Transaction running on this thread.
+	 */
+	protected PooledConnection borrowConnection() throws SQLException {
+		return this.router.borrowForWrite();
+	}
+
+	/**
+	 *
+	 * Borrows a connection for a read, to a read replica when there is a healthy one.
+	 * Reads within a Transaction, or shortly after a write by the same thread (DatabaseConfig.READ_YOUR_WRITES_MILLIS), go to the primary,
+	 * and so do lookups by primary key that fill the entity cache.
+	 *
+	 * @return      a connection in autocommit mode, or the connection of the Transaction running on this thread.
+	 */
+	protected PooledConnection borrowReadConnection() throws SQLException {
+		return this.router.borrowForRead();
+	}
+
+	private List<ColumnDefinition> getColumnDefinitions() {
+		try {
+			return SchemaCache.get(this.pool, this.table_name);
+		} catch (SQLException ex) {
+			System.out.println("===EXCEPTION===\nUsed SQL query (not always the problem):");
+			System.out.println("SHOW COLUMNS FROM " + this.table_name);
+			this.reportError(ex);
+			return null;
+		}
+	}
+
+	/**
+	 *
+	 * Generates a new object from the string values of its columns, in column order.
+	 * Kept for compatibility; the repository itself reads rows with hydrate(), which skips the string round trip.
+	 *
+	 * @param  values  	a list of all values used to instantiate the new object
+	 * @return      	the newly generated object.
+	 */
+	@Deprecated
+	public T generate(ArrayList<String> values) {
+		T generic_obj = this.supplier.get();
+
+		for (int i = 0; i < this.columnDefinitions.size(); i++) {
+			String text = values.get(i);
+			// Like hydrate(), primitive fields keep their default for NULL.
+			if (text == null && this.mapper.getFieldType(i).isPrimitive()) {
+				continue;
+			}
+			this.mapper.set(generic_obj, i, text == null ? null : this.codecs[i].parse(text));
+		}
+
+		return generic_obj;
+	}
+
+	/**
+	 *
+	 * Finds the position of every column definition in the result set.
+	 * Done once per result set, so rows can be read by index.
+	 *
+	 * @param  result_set	the result set to be read.
+	 * @return      		the 1-based position of each column, in column definition order.
+	 * 						Queries with a projection use 0 for the columns they don't select, which hydrate() skips.
+	 */
+	protected int[] columnPositions(ResultSet result_set) throws SQLException {
+		int[] positions = new int[this.columnDefinitions.size()];
+
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = result_set.findColumn(this.columnDefinitions.get(i).name);
+		}
+
+		return positions;
+	}
+
+	/**
+	 *
+	 * Generates a new object from the current row of the result set.
+	 * Every column is read with the getter of its codec and written straight into the object.
+	 * Primitive int, long, double and boolean fields are read without boxing.
+	 *
+	 * @param  result_set	the result set, positioned on the row to be read.
+	 * @param  positions	the column positions, as returned by columnPositions().
+	 * @return      		the newly generated object.
+	 */
+	protected T hydrate(ResultSet result_set, int[] positions) throws SQLException {
+		T generic_obj = this.supplier.get();
+
+		for (int i = 0; i < positions.length; i++) {
+			int position = positions[i];
+			if (position == 0) {
+				continue;
+			}
+			Class<?> field_type = this.mapper.getFieldType(i);
+
+			if (field_type == int.class) {
+				this.mapper.setInt(generic_obj, i, result_set.getInt(position));
+			} else if (field_type == long.class) {
+				this.mapper.setLong(generic_obj, i, result_set.getLong(position));
+			} else if (field_type == double.class) {
+				this.mapper.setDouble(generic_obj, i, result_set.getDouble(position));
+			} else if (field_type == boolean.class) {
+				this.mapper.setBoolean(generic_obj, i, result_set.getBoolean(position));
+			} else {
+				Object value = this.codecs[i].read(result_set, position);
+				// Other primitive fields keep their default for SQL NULL.
+				if (value != null || !field_type.isPrimitive()) {
+					this.mapper.set(generic_obj, i, value);
+				}
+			}
+		}
+
+		return generic_obj;
+	}
+
+	/**
+	 *
+	 * Executes a `SELECT *` SQL query on the given table.
+	 * Converts retrieved data to the given type.
+	 *
+	 * @return      An ArrayList of all found objects.
+	 */
+	@Override
+	public ArrayList<T> getAll() {
+		return this.getAll("SELECT * FROM " + this.table_name);
+	}
+
+	/**
+	 *
+	 * Executes a `SELECT *` SQL query on the given table.
+	 * Converts retrieved data to the given type.
+	 *
+	 * @param 	query	The query to be done on the database
+	 * @return      	An ArrayList of all found objects.
+	 */
+	@Override
+	public ArrayList<T> getAll(String query) {
+		long start = System.nanoTime(), acquired = 0, executed = 0;
+
+		try (PooledConnection pooled = this.borrowReadConnection()) {
+			acquired = System.nanoTime();
+
+			try (Statement statement = pooled.createStatement();
+				 ResultSet result_set = statement.executeQuery(query)) {
+				executed = System.nanoTime();
+
+				// output.
+				ArrayList<T> models = new ArrayList<>();
+				int[] positions = this.columnPositions(result_set);
+
+				// loop through all results
+				while (result_set.next()) {
+					models.add(this.hydrate(result_set, positions));
+				}
+
+				this.record(Operation.GET_ALL, query, true, models.size(), 0, start, acquired, executed);
+				return models;
+			}
+
+		} catch (SQLException ex) {
+			System.out.println("===EXCEPTION===\nUsed SQL query (not always the problem):");
+			System.out.println(query);
+			this.reportError(ex);
+			this.record(Operation.GET_ALL, query, false, 0, 0, start, acquired, executed);
+			return null;
+		}
+	}
+
+	/**
+	 *
+	 * Starts a query on the table, for example
+	 * `repository.query().where("clearance", ">=", 3).orderBy("name").limit(20).list()`.
+	 *
+	 * @return      A query selecting every record, to be narrowed down.
+	 */
+	public Query<T> query() {
+		return new Query<>(this);
+	}
+
+	/**
+	 *
+	 * Counts the records of the table on the server, without fetching them.
+	 * Use query().where(...).count() for other conditions.
+	 *
+	 * @return      		The number of records. -1 on failure.
+	 */
+	@Override
+	public long count() {
+		return this.query().count();
+	}
+
+	/**
+	 *
+	 * @param column		The column in the database table to search for.
+	 * @param value			The value to check for in the given column.
+	 * @return      		The number of records where the given column has the given value. -1 on failure.
+	 */
+	@Override
+	public long count(String column, Object value) {
+		return this.query().where(column, value).count();
+	}
+
+	/**
+	 *
+	 * @param column		The column in the database table to search for.
+	 * @param value			The value to check for in the given column.
+	 * @return      		Whether a record exists where the given column has the given value. False on failure.
+	 */
+	@Override
+	public boolean exists(String column, Object value) {
+		return this.query().where(column, value).exists();
+	}
+
+	@Override
+	public double sum(String column) {
+		return this.query().sum(column);
+	}
+
+	@Override
+	public double min(String column) {
+		return this.query().min(column);
+	}
+
+	@Override
+	public double max(String column) {
+		return this.query().max(column);
+	}
+
+	@Override
+	public double avg(String column) {
+		return this.query().avg(column);
+	}
+
+	/**
+	 *
+	 * Streams every record of the table, without loading the whole table in memory.
+	 * The stream holds a pooled connection and must be closed, preferably with try-with-resources.
+	 *
+	 * @return      A stream of all records.
+	 */
+	@Override
+	public Stream<T> streamAll() {
+		return this.stream("SELECT * FROM " + this.table_name);
+	}
+
+	/**
+	 *
+	 * Executes the query and streams the results, converted to the given type.
+	 * Rows are read from the database as the stream is consumed, so memory use doesn't depend on the size of the result.
+	 * The stream holds a pooled connection and must be closed, preferably with try-with-resources.
+	 *
+	 * @param 	query	The query to be done on the database
+	 * @return      	A stream of all found objects.
+	 */
+	@Override
+	public Stream<T> stream(String query) {
+		PooledConnection pooled = null;
+		Statement statement = null;
+
 		try {
-			this.conn.close();
+			pooled = this.borrowReadConnection();
+			Connection conn = pooled.getConnection();
+
+			statement = pooled.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			statement.setFetchSize(this.streamFetchSize(conn));
+
+			ResultSet result_set = statement.executeQuery(query);
+			return this.streamOf(pooled, statement, result_set, this.columnPositions(result_set));
+
 		} catch (SQLException ex) {
-			System.out.println("Error occurred when closing the connection");
-			System.out.println(ex.getMessage());
+			System.out.println("===EXCEPTION===\nUsed SQL query (not always the problem):");
+			System.out.println(query);
+			this.reportError(ex);
+
+			try {
+				if (statement != null) {
+					statement.close();
+				}
+			} catch (SQLException ignored) {
+			}
+			if (pooled != null) {
+				pooled.close();
+			}
+
+			return Stream.empty();
+		}
+	}
+
+	/**
+	 *
+	 * Reads the whole table in parallel: the table is split into primary key ranges,
+	 * which are read at the same time on virtual threads, each with a pooled connection of its own.
+	 * At most as many ranges are read at once as the pool has connections.
+	 * The ranges run outside any Transaction of the calling thread.
+	 * If a range can't be read, the scan throws an IllegalStateException instead of returning a partial count.
+	 *
+	 * @param  partitions	The number of primary key ranges.
+	 * @param  action		Called for every record, from several threads at once.
+	 * @return      		The number of records that were read.
+	 */
+	@Override
+	public long parallelScan(int partitions, Consumer<? super T> action) {
+		List<Query<T>> ranges = this.partitions(partitions);
+		Semaphore permits = new Semaphore(Math.min(ranges.size(), this.pool.getMaxSize()));
+		AtomicLong rows = new AtomicLong();
+
+		List<Future<?>> scans = new ArrayList<>();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (Query<T> range : ranges) {
+				scans.add(executor.submit(() -> {
+					permits.acquire();
+					try (Stream<T> records = range.streamOrThrow()) {
+						records.forEach(record -> {
+							action.accept(record);
+							rows.incrementAndGet();
+						});
+					} finally {
+						permits.release();
+					}
+					return null;
+				}));
+			}
+		}
+
+		for (Future<?> scan : scans) {
+			try {
+				scan.get();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException ex) {
+				throw ex.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(ex.getCause());
+			}
+		}
+
+		return rows.get();
+	}
+
+	/**
+	 *
+	 * Streams the whole table as a parallel stream, split into primary key ranges that are each read with a query of their own.
+	 * Every thread of the stream reads one range at a time, with a pooled connection of its own.
+	 * The stream must be closed, preferably with try-with-resources.
+	 * If a range can't be read, the stream throws an IllegalStateException instead of leaving its records out.
+	 *
+	 * @param  partitions	The number of primary key ranges.
+	 * @return      		A parallel stream of all records, in no particular order.
+	 */
+	@Override
+	public Stream<T> parallelStream(int partitions) {
+		Set<Stream<T>> open = ConcurrentHashMap.newKeySet();
+
+		return StreamSupport.stream(new PartitionSpliterator<>(this.partitions(partitions), open), true)
+				.onClose(() -> open.forEach(Stream::close));
+	}
+
+	/**
+	 *
+	 * Splits the table into primary key ranges of about the same size.
+	 * Int primary keys are split evenly between their minimum and maximum.
+	 * Other primary keys are split at sampled keys, found by offset in primary key order.
+	 *
+	 * @return 			a query for every range, together covering the whole table.
+	 */
+	protected List<Query<T>> partitions(int partitions) {
+		List<Object> boundaries = new ArrayList<>();
+
+		if (partitions > 1 && this.pk.type == ColumnDefinitionType.INT) {
+			double min = this.min(this.pk.name);
+			double max = this.max(this.pk.name);
+			long step = Double.isNaN(min) ? 0 : (long) Math.ceil((max - min + 1) / partitions);
+
+			for (int i = 1; i < partitions && step > 0; i++) {
+				long boundary = (long) min + i * step;
+				if (boundary > max) {
+					break;
+				}
+				boundaries.add((int) boundary);
+			}
+		} else if (partitions > 1) {
+			long count = this.count();
+
+			for (int i = 1; i < partitions && count > 0; i++) {
+				T sample = this.query().select(this.pk.name).orderBy(this.pk.name).offset((int) (count * i / partitions)).first();
+				Object boundary = sample == null ? null : this.mapper.get(sample, 0);
+				if (boundary != null && !boundaries.contains(boundary)) {
+					boundaries.add(boundary);
+				}
+			}
+		}
+
+		List<Query<T>> ranges = new ArrayList<>();
+		for (int i = 0; i <= boundaries.size(); i++) {
+			Query<T> range = this.query();
+			if (i > 0) {
+				range.where(this.pk.name, ">=", boundaries.get(i - 1));
+			}
+			if (i < boundaries.size()) {
+				range.where(this.pk.name, "<", boundaries.get(i));
+			}
+			ranges.add(range);
+		}
+
+		return ranges;
+	}
+
+	/**
+	 *
+	 * Wraps an open result set in a stream. Closing the stream closes the statement and returns the connection.
+	 *
+	 * @param  pooled		the connection the statement belongs to.
+	 * @param  statement	an uncached statement, closed with the stream.
+	 * @param  result_set	the result set of the statement.
+	 * @param  positions	the column positions, as returned by columnPositions().
+	 */
+	protected Stream<T> streamOf(PooledConnection pooled, Statement statement, ResultSet result_set, int[] positions) {
+		Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action) {
+				try {
+					if (!result_set.next()) {
+						return false;
+					}
+					action.accept(hydrate(result_set, positions));
+					return true;
+				} catch (SQLException ex) {
+					throw new IllegalStateException(ex.getMessage(), ex);
+				}
+			}
+		};
+
+		return StreamSupport.stream(spliterator, false).onClose(() -> {
+			try {
+				// Closing the statement closes the result set.
+				statement.close();
+			} catch (SQLException ex) {
+				System.out.println(ex.getMessage());
+			} finally {
+				pooled.close();
+			}
+		});
+	}
+
+	/**
+	 *
+	 * Connector/J only streams rows one by one when the fetch size is Integer.MIN_VALUE,
+	 * unless the connection uses server-side cursors (useCursorFetch=true).
+	 */
+	int streamFetchSize(Connection conn) throws SQLException {
+		if (conn.getMetaData().getDriverName().startsWith("MySQL") && !conn.getMetaData().getURL().contains("useCursorFetch=true")) {
+			return Integer.MIN_VALUE;
+		}
+
+		return DatabaseConfig.STREAM_FETCH_SIZE;
+	}
+
+	/**
+	 *
+	 * Searches for the first record where the given column has the given value.
+	 *
+	 * @param column		The column in the database table to search for.
+	 * @param value			The value to check for in the given column.
+	 * @return      		If found, the record, converted to a model. Otherwise null.
+	 */
+	@Override
+	public T getBy(String column, String value) {
+		// Within a transaction the cache is skipped, so uncommitted changes never end up in it.
+		if (value != null && column.equals(this.pk.name) && Transaction.current() == null) {
+			if (this.cache != null) {
+				return this.cache.get(value, () -> this.findById(value));
+			}
+			return this.findById(value);
+		}
+
+		return this.findBy(column, value, false);
+	}
+
+	private T findById(String value) {
+		KeyCoalescer<T> coalescer = this.coalescer;
+		return coalescer != null ? coalescer.get(value) : this.findBy(this.pk.name, value, this.cache != null);
+	}
+
+	/**
+	 *
+	 * @param from_primary	Whether to skip the read replicas. Loads into the entity cache read from the primary,
+	 *                      since a row read from a lagging replica would stay cached until it expires.
+	 */
+	private T findBy(String column, String value, boolean from_primary) {
+		String query = column.equals(this.pk.name) ? this.select_by_pk_query : this.selectByQuery(column);
+		long start = System.nanoTime(), acquired = 0, executed = 0;
+		long bytes_bound = value == null ? 0 : value.length();
+
+		try (PooledConnection pooled = from_primary ? this.router.borrowFromPrimary() : this.borrowReadConnection()) {
+			acquired = System.nanoTime();
+			PreparedStatement statement = pooled.prepare(query);
+			statement.setString(1, value);
+
+			try (ResultSet result_set = statement.executeQuery()) {
+				executed = System.nanoTime();
+
+				T model = result_set.next() ? this.hydrate(result_set, this.columnPositions(result_set)) : null;
+				this.record(Operation.GET_BY, query, true, model == null ? 0 : 1, bytes_bound, start, acquired, executed);
+				return model;
+			}
+
+		} catch (SQLException ex) {
+			this.reportError(ex);
+			this.record(Operation.GET_BY, query, false, 0, bytes_bound, start, acquired, executed);
+			return null;
+		}
+	}
+
+
+	protected String selectByQuery(String column) {
+		return String.format("SELECT * FROM %s WHERE %s = ?", this.table_name, column);
+	}
+
+	/**
+	 *
+	 * Searches for the first record where the primary key (first item in records) matches the given primary key.
+	 *
+	 * @param  primary_key  The primary key used to search for the model.
+	 * @return      		If found, the model. Otherwise null.
+	 */
+	@Override
+	public T getById(int primary_key) {
+		return this.getBy(this.pk.name, String.valueOf(primary_key));
+	}
+
+	/**
+	 *
+	 * Searches for the first record where the primary key (first item in records) matches the given primary key.
+	 *
+	 * @param  primary_key  The primary key used to search for the model.
+	 * @return      		If found, the model. Otherwise null.
+	 */
+	@Override
+	public T getById(String primary_key) {
+		return this.getBy(this.pk.name, primary_key);
+	}
+
+	/**
+	 *
+	 * Searches for the records with the given primary keys, with a few `WHERE pk IN (...)` queries instead of one query per key.
+	 *
+	 * @param  primary_keys	The primary keys used to search for the models.
+	 * @return      		The models that were found, by the given primary key, in the order of the keys. Null on failure.
+	 */
+	@Override
+	public <K> Map<K, T> getByIds(Collection<K> primary_keys) {
+		Map<String, K> keys = new LinkedHashMap<>();
+		for (K key : primary_keys) {
+			if (key != null) {
+				keys.put(String.valueOf(key), key);
+			}
+		}
+
+		Map<String, T> found = this.cache != null && Transaction.current() == null
+				? this.cache.getAll(keys.keySet(), this::findByIds)
+				: this.findByIds(keys.keySet());
+		if (found == null) {
+			return null;
+		}
+
+		Map<K, T> models = new LinkedHashMap<>();
+		for (Map.Entry<String, K> key : keys.entrySet()) {
+			T model = found.get(key.getKey());
+			if (model != null) {
+				models.put(key.getValue(), model);
+			}
+		}
+
+		return models;
+	}
+
+	/**
+	 *
+	 * Searches for all records where the given column has one of the given values.
+	 *
+	 * @param column		The column in the database table to search for.
+	 * @param values		The values to check for in the given column.
+	 * @return      		The models that were found, by primary key. Null on failure.
+	 */
+	@Override
+	public Map<Object, T> getAllBy(String column, Collection<String> values) {
+		return this.findIn(column, values, false);
+	}
+
+	private Map<String, T> findByIds(Collection<String> keys) {
+		// Like findById(), loads into the cache read from the primary.
+		Map<Object, T> found = this.findIn(this.pk.name, keys, this.cache != null);
+		if (found == null) {
+			return null;
+		}
+
+		Map<String, T> models = new HashMap<>();
+		for (Map.Entry<Object, T> model : found.entrySet()) {
+			models.put(String.valueOf(model.getKey()), model.getValue());
+		}
+
+		return models;
+	}
+
+	private Map<Object, T> findIn(String column, Collection<String> values, boolean from_primary) {
+		List<String> distinct = values.stream().filter(Objects::nonNull).distinct().toList();
+		Map<Object, T> models = new LinkedHashMap<>();
+
+		try (PooledConnection pooled = from_primary ? this.router.borrowFromPrimary() : this.borrowReadConnection()) {
+			int[] positions = null;
+
+			for (int from = 0; from < distinct.size(); ) {
+				int size = inChunkSize(distinct.size() - from);
+				int to = Math.min(from + size, distinct.size());
+
+				PreparedStatement statement = pooled.prepare(this.selectInQuery(column, size));
+				for (int i = 0; i < size; i++) {
+					// The padding repeats the last value of the chunk.
+					statement.setString(i + 1, distinct.get(Math.min(from + i, to - 1)));
+				}
+
+				try (ResultSet result_set = statement.executeQuery()) {
+					if (positions == null) {
+						positions = this.columnPositions(result_set);
+					}
+
+					while (result_set.next()) {
+						T model = this.hydrate(result_set, positions);
+						models.put(this.mapper.get(model, 0), model);
+					}
+				}
+
+				from = to;
+			}
+
+			return models;
+
+		} catch (SQLException ex) {
+			this.reportError(ex);
+			return null;
+		}
+	}
+
+	private static int inChunkSize(int remaining) {
+		for (int size : IN_CHUNK_SIZES) {
+			if (size >= remaining) {
+				return size;
+			}
+		}
+
+		return IN_CHUNK_SIZES[IN_CHUNK_SIZES.length - 1];
+	}
+
+	/**
+	 *
+	 * @return 			a `SELECT` query for the given number of values of the column.
+	 */
+	protected String selectInQuery(String column, int values) {
+		StringBuilder query = new StringBuilder("SELECT * FROM " + this.table_name + " WHERE " + column + " IN (");
+
+		for (int i = 0; i < values; i++) {
+			query.append(i == 0 ? "?" : ", ?");
+		}
+
+		return query.append(")").toString();
+	}
+
+	/**
+	 *
+	 * Creates a new record in the database from the data.
+	 *
+	 * @param  data		a model with the data to be inserted in the database.
+	 * @return 			a boolean, indicating whether the update has worked.
+	 */
+	@Override
+	public boolean create(T data) {
+		if (data == null) {
+			return false;
+		}
+
+		long start = System.nanoTime(), acquired = 0, executed = 0;
+
+		try (PooledConnection pooled = this.borrowConnection()) {
+			acquired = System.nanoTime();
+			PreparedStatement statement = pooled.prepare(this.insert_query, this.generatedKeys());
+
+			boolean generated_pk = this.bindInsert(statement, data, pooled.getConnection());
+
+			// Executing the array
+			int success;
+			try {
+				success = statement.executeUpdate();
+			} catch (SQLException ex) {
+				if (!this.isTakenGeneratedId(ex, data)) {
+					throw ex;
+				}
+
+				// Someone else inserted the generated id; retry once with a fresh one.
+				this.id_generator.reset();
+				this.bindInsert(statement, data, pooled.getConnection());
+				success = statement.executeUpdate();
+			}
+			executed = System.nanoTime();
+			if (generated_pk) {
+				this.readGeneratedKeys(statement, List.of(data));
+			}
+			this.invalidate(data);
+
+			this.record(Operation.CREATE, this.insert_query, true, success, this.boundBytes(data), start, acquired, executed);
+			return success != 0;
+
+		} catch (SQLException ex) {
+			this.reportError(ex);
+			this.record(Operation.CREATE, this.insert_query, false, 0, this.boundBytes(data), start, acquired, executed);
+			return false;
+		}
+	}
+
+	/**
+	 *
+	 * Creates the record, or updates it when a record with the same primary or unique key exists,
+	 * in a single `INSERT ... ON DUPLICATE KEY UPDATE` statement.
+	 * Unlike create(), keys generated for a primary key of 0 aren't written back into the model.
+	 *
+	 * @param  data		a model with the data to be stored in the database.
+	 * @return 			a boolean, indicating whether the upsert has worked.
+	 */
+	@Override
+	public boolean upsert(T data) {
+		if (data == null) {
+			return false;
+		}
+
+		long start = System.nanoTime(), acquired = 0, executed = 0;
+
+		try (PooledConnection pooled = this.borrowConnection()) {
+			acquired = System.nanoTime();
+			PreparedStatement statement = pooled.prepare(this.upsert_query);
+			this.bindInsert(statement, data, pooled.getConnection());
+
+			int affected = statement.executeUpdate();
+			executed = System.nanoTime();
+			this.invalidate(data);
+
+			this.record(Operation.UPSERT, this.upsert_query, true, affected, this.boundBytes(data), start, acquired, executed);
+			return true;
+
+		} catch (SQLException ex) {
+			this.reportError(ex);
+			this.record(Operation.UPSERT, this.upsert_query, false, 0, this.boundBytes(data), start, acquired, executed);
+			return false;
+		}
+	}
+
+	/**
+	 *
+	 * Creates the record, unless a record with the same primary or unique key exists, using `INSERT IGNORE`.
+	 *
+	 * @param  data		a model with the data to be inserted in the database.
+	 * @return 			true when the record has been created, false when it already existed or on failure.
+	 */
+	@Override
+	public boolean createIfAbsent(T data) {
+		if (data == null) {
+			return false;
+		}
+
+		long start = System.nanoTime(), acquired = 0, executed = 0;
+
+		try (PooledConnection pooled = this.borrowConnection()) {
+			acquired = System.nanoTime();
+			PreparedStatement statement = pooled.prepare(this.insert_ignore_query);
+			this.bindInsert(statement, data, pooled.getConnection());
+
+			int affected = statement.executeUpdate();
+			executed = System.nanoTime();
+
+			this.record(Operation.CREATE, this.insert_ignore_query, true, affected, this.boundBytes(data), start, acquired, executed);
+			return affected == 1;
+
+		} catch (SQLException ex) {
+			this.reportError(ex);
+			this.record(Operation.CREATE, this.insert_ignore_query, false, 0, this.boundBytes(data), start, acquired, executed);
+			return false;
+		}
+	}
+
+	/**
+	 *
+	 * Upserts all given models, in batches of DatabaseConfig.BATCH_SIZE with one commit per batch.
+	 *
+	 * @param  data		the models to be stored in the database.
+	 * @return 			the results of every batch, and how many records were inserted and updated.
+	 */
+	@Override
+	public UpsertResult upsertAll(Collection<T> data) {
+		return this.upsertAll(data, DatabaseConfig.BATCH_SIZE);
+	}
+
+	public UpsertResult upsertAll(Collection<T> data, int batch_size) {
+		UpsertResult result = this.executeInBatches(this.upsert_query, data, batch_size, new UpsertResult());
+
+		for (T model : data) {
+			this.invalidate(model);
+		}
+
+		return result;
+	}
+
+	/**
+	 *
+	 * Creates records for the given models that don't exist yet, in batches of DatabaseConfig.BATCH_SIZE with one commit per batch.
+	 *
+	 * @param  data		the models to be inserted in the database.
+	 * @return 			the results of every batch, and how many records were inserted, and ignored as unchanged.
+	 */
+	@Override
+	public UpsertResult createAllIfAbsent(Collection<T> data) {
+		return this.createAllIfAbsent(data, DatabaseConfig.BATCH_SIZE);
+	}
+
+	public UpsertResult createAllIfAbsent(Collection<T> data, int batch_size) {
+		return this.executeInBatches(this.insert_ignore_query, data, batch_size, new UpsertResult());
+	}
+
+	private UpsertResult executeInBatches(String query, Collection<T> data, int batch_size, UpsertResult result) {
+		this.executeInBatches(query, Statement.NO_GENERATED_KEYS, data.iterator(), batch_size,
+				(pooled, statement, model) -> this.bindInsert(statement, model, pooled.getConnection()), null, result);
+		return result;
+	}
+
+	/**
+	 *
+	 * Creates new records for all given models, in batches of DatabaseConfig.BATCH_SIZE.
+	 *
+	 * @param  data		the models to be inserted in the database.
+	 * @return 			the results of every batch that was sent.
+	 */
+	@Override
+	public BatchResult createAll(Collection<T> data) {
+		return this.createAll(data, DatabaseConfig.BATCH_SIZE);
+	}
+
+	public BatchResult createAll(Collection<T> data, int batch_size) {
+		return this.createAll(data.iterator(), batch_size);
+	}
+
+	/**
+	 *
+	 * Creates new records for all models in the stream, in batches of DatabaseConfig.BATCH_SIZE.
+	 * Only one batch is held in memory at a time.
+	 *
+	 * @param  data		the models to be inserted in the database.
+	 * @return 			the results of every batch that was sent.
+	 */
+	@Override
+	public BatchResult createAll(Stream<T> data) {
+		return this.createAll(data, DatabaseConfig.BATCH_SIZE);
+	}
+
+	public BatchResult createAll(Stream<T> data, int batch_size) {
+		return this.createAll(data.iterator(), batch_size);
+	}
+
+	/**
+	 *
+	 * Inserts the models with one prepared statement, using addBatch/executeBatch and one commit per batch.
+	 * Add rewriteBatchedStatements=true to the Connector/J URL to have every batch sent as a single multi-row INSERT.
+	 */
+	private BatchResult createAll(Iterator<T> data, int batch_size) {
+		// Models whose key the database generates in the current batch.
+		List<T> pending_keys = new ArrayList<>();
+
+		BatchResult result = this.executeInBatches(this.insert_query, this.generatedKeys(), data, batch_size,
+				(pooled, statement, model) -> {
+					if (this.bindInsert(statement, model, pooled.getConnection())) {
+						pending_keys.add(model);
+					}
+				},
+				statement -> {
+					this.readGeneratedKeys(statement, pending_keys);
+					pending_keys.clear();
+				});
+
+		// A batch may have failed on a generated id that was taken; make the next insert look the ids up again.
+		if (!result.isSuccess()) {
+			this.id_generator.reset();
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * Whether the insert failed on a constraint while the primary key was generated by the id generator,
+	 * which happens when a record with that id was inserted outside of it.
+	 */
+	private boolean isTakenGeneratedId(SQLException ex, T data) {
+		return ex.getSQLState() != null && ex.getSQLState().startsWith("23")
+				&& this.pk.type == ColumnDefinitionType.INT
+				&& !this.id_generator.isGeneratedByDatabase()
+				&& this.mapper.get(data, 0) instanceof Integer key && key == 0;
+	}
+
+	/**
+	 *
+	 * Loads all models in the stream with `LOAD DATA LOCAL INFILE`, MySQL's bulk loader, in chunks of DatabaseConfig.BULK_LOAD_CHUNK_SIZE.
+	 * Every chunk is written as CSV to memory and handed to Connector/J as the local file, so nothing is written to disk.
+	 * Requires allowLoadLocalInfile=true in the Connector/J URL and local_infile=ON on the server;
+	 * otherwise, on databases other than MySQL, and for fields bound as binary (byte[], UUID in a binary column), it falls back to createAll().
+	 * A chunk that fails is rolled back and counted as failed in the result; the chunks after it are still loaded.
+	 * Null fields are loaded as NULL.
+	 *
+	 * @param  data		the models to be inserted in the database.
+	 * @return 			the results of every chunk that was sent, including the rows per second.
+	 */
+	@Override
+	public BatchResult bulkLoad(Stream<T> data) {
+		return this.bulkLoad(data, DatabaseConfig.BULK_LOAD_CHUNK_SIZE);
+	}
+
+	public BatchResult bulkLoad(Stream<T> data, int chunk_size) {
+		Iterator<T> rows = data.iterator();
+		BatchResult result = new BatchResult();
+		List<T> fallback = null;
+
+		try (PooledConnection pooled = this.borrowConnection();
+			 Statement statement = pooled.createStatement()) {
+
+			Connection conn = pooled.getConnection();
+			if (!conn.getMetaData().getDriverName().startsWith("MySQL") || !statement.isWrapperFor(JdbcStatement.class) || this.hasBinaryFields()) {
+				fallback = List.of();
+			} else {
+				pooled.begin();
+				String query = this.loadDataQuery();
+
+				while (rows.hasNext()) {
+					List<T> chunk = new ArrayList<>(Math.min(chunk_size, 10_000));
+					while (chunk.size() < chunk_size && rows.hasNext()) {
+						T model = rows.next();
+						if (model != null) {
+							chunk.add(model);
+						}
+					}
+
+					long start = System.nanoTime();
+					try {
+						StringBuilder csv = new StringBuilder();
+						for (T model : chunk) {
+							this.writeCsv(csv, model, conn);
+						}
+						statement.unwrap(JdbcStatement.class).setLocalInfileInputStream(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+
+						int affected = statement.executeUpdate(query);
+						pooled.commit();
+						result.add(chunk.size(), affected, true, System.nanoTime() - start);
+
+					} catch (SQLException ex) {
+						pooled.rollback();
+
+						if (result.getBatches().isEmpty() && isLocalInfileRefused(ex)) {
+							fallback = chunk;
+							break;
+						}
+
+						// Only this chunk is lost; the next ones are still loaded.
+						this.reportError(ex);
+						result.add(chunk.size(), 0, false, System.nanoTime() - start);
+					}
+				}
+			}
+
+		} catch (SQLException ex) {
+			this.reportError(ex);
+
+			// Rows that were never sent count as failed, rather than disappearing from the result.
+			int remaining = 0;
+			while (rows.hasNext()) {
+				if (rows.next() != null) {
+					remaining++;
+				}
+			}
+			if (remaining > 0) {
+				result.add(remaining, 0, false, 0);
+			}
+		}
+
+		if (fallback != null) {
+			return this.createAll(Stream.concat(fallback.stream(), StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED), false)));
+		}
+
+		this.invalidateAll();
+		return result.finish();
+	}
+
+	/**
+	 *
+	 * Whether `LOAD DATA LOCAL INFILE` was refused because local infile is disabled on the client or the server,
+	 * rather than failing on the data.
+	 */
+	static boolean isLocalInfileRefused(SQLException ex) {
+		// ER_NOT_ALLOWED_COMMAND, ER_CLIENT_LOCAL_FILES_DISABLED, ER_LOAD_INFILE_CAPABILITY_DISABLED
+		return switch (ex.getErrorCode()) {
+			case 1148, 3948, 3950 -> true;
+			default -> ex.getMessage() != null && ex.getMessage().contains("Loading local data is disabled");
+		};
+	}
+
+	/**
+	 *
+	 * @return 			the `LOAD DATA` query for all columns, in the CSV format written by writeCsv().
+	 */
+	protected String loadDataQuery() {
+		StringBuilder query = new StringBuilder("LOAD DATA LOCAL INFILE 'jdbr-bulk-load.csv' INTO TABLE " + this.table_name
+				+ " CHARACTER SET utf8mb4 FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY '\\\\'"
+				+ " LINES TERMINATED BY '\\n' (");
+
+		for (int i = 0; i < this.columnDefinitions.size(); i++) {
+			query.append(i == 0 ? "" : ", ").append(this.columnDefinitions.get(i).name);
+		}
+
+		return query.append(")").toString();
+	}
+
+	/**
+	 *
+	 * Writes the model as a CSV line, in the order of the column definitions.
+	 * Like bindInsert(), an int primary key of 0 is replaced by a generated key.
+	 */
+	protected void writeCsv(StringBuilder csv, T data, Connection conn) throws SQLException {
+		for (int i = 0; i < this.columnDefinitions.size(); i++) {
+			if (i > 0) {
+				csv.append(',');
+			}
+
+			Object value = this.mapper.get(data, i);
+			if (i == 0 && this.pk.type == ColumnDefinitionType.INT && value instanceof Integer key && key == 0) {
+				value = this.id_generator.isGeneratedByDatabase() ? null : this.id_generator.nextId(conn);
+			}
+
+			if (value == null) {
+				csv.append("\\N");
+			} else if (value instanceof Boolean bool) {
+				csv.append(bool ? '1' : '0');
+			} else if (value instanceof BigDecimal decimal) {
+				csv.append(decimal.toPlainString());
+			} else if (value instanceof Number) {
+				csv.append(value);
+			} else {
+				String text = switch (value) {
+					case LocalDateTime datetime -> datetime.toString().replace('T', ' ');
+					case Instant instant -> Timestamp.from(instant).toString();
+					case Enum<?> constant -> constant.name();
+					default -> value.toString();
+				};
+
+				csv.append('"');
+				for (int c = 0; c < text.length(); c++) {
+					char ch = text.charAt(c);
+					switch (ch) {
+						case '"', '\\' -> csv.append('\\').append(ch);
+						case '\n' -> csv.append("\\n");
+						case '\r' -> csv.append("\\r");
+						default -> csv.append(ch);
+					}
+				}
+				csv.append('"');
+			}
+		}
+
+		csv.append('\n');
+	}
+
+	// Binary values can't be written to the CSV of bulkLoad().
+	private boolean hasBinaryFields() {
+		for (TypeCodec<Object> codec : this.codecs) {
+			if (codec.sqlType() == Types.BINARY || codec.sqlType() == Types.VARBINARY) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int generatedKeys() {
+		return this.id_generator.isGeneratedByDatabase() ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS;
+	}
+
+	/**
+	 *
+	 * Writes the keys generated by the database back into the created models, in order.
+	 */
+	private void readGeneratedKeys(PreparedStatement statement, List<T> models) throws SQLException {
+		if (models.isEmpty()) {
+			return;
+		}
+
+		try (ResultSet keys = statement.getGeneratedKeys()) {
+			for (T model : models) {
+				if (!keys.next()) {
+					break;
+				}
+				if (this.mapper.getFieldType(0) == long.class) {
+					this.mapper.setLong(model, 0, keys.getLong(1));
+				} else {
+					this.mapper.setInt(model, 0, keys.getInt(1));
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * Binds a model to the parameters of a batched statement.
+	 */
+	protected interface BatchBinder<T> {
+		void bind(PooledConnection pooled, PreparedStatement statement, T model) throws SQLException;
+	}
+
+	/**
+	 *
+	 * Called after a batch has been executed, before it is committed.
+	 */
+	protected interface BatchCallback {
+		void executed(PreparedStatement statement) throws SQLException;
+	}
+
+	/**
+	 *
+	 * Runs the query once for every model, with one prepared statement and one commit per batch.
+	 * Stops at the first batch that fails; that batch is rolled back.
+	 *
+	 * @param  query		the query to be prepared.
+	 * @param  data			the models to be bound to the query. Null models are skipped.
+	 * @param  batch_size	the number of models sent and committed together.
+	 * @param  binder		binds a model to the parameters of the query.
+	 * @return 				the results of every batch that was sent.
+	 */
+	protected BatchResult executeInBatches(String query, Iterator<T> data, int batch_size, BatchBinder<T> binder) {
+		return this.executeInBatches(query, Statement.NO_GENERATED_KEYS, data, batch_size, binder, null);
+	}
+
+	/**
+	 *
+	 * Like executeInBatches(query, data, batch_size, binder), with a callback after every executed batch.
+	 *
+	 * @param  auto_generated_keys	Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS.
+	 * @param  callback				called after every executed batch. May be null.
+	 */
+	protected BatchResult executeInBatches(String query, int auto_generated_keys, Iterator<T> data, int batch_size, BatchBinder<T> binder, BatchCallback callback) {
+		return this.executeInBatches(query, auto_generated_keys, data, batch_size, binder, callback, new BatchResult());
+	}
+
+	protected BatchResult executeInBatches(String query, int auto_generated_keys, Iterator<T> data, int batch_size, BatchBinder<T> binder, BatchCallback callback, BatchResult result) {
+
+		try (PooledConnection pooled = this.borrowConnection()) {
+			PreparedStatement statement = pooled.prepare(query, auto_generated_keys);
+			pooled.begin();
+
+			while (data.hasNext()) {
+				int rows = 0;
+				while (rows < batch_size && data.hasNext()) {
+					T model = data.next();
+					if (model == null) {
+						continue;
+					}
+
+					binder.bind(pooled, statement, model);
+					statement.addBatch();
+					rows++;
+				}
+
+				if (rows == 0) {
+					break;
+				}
+
+				if (!this.executeBatch(pooled, statement, rows, result, callback)) {
+					break;
+				}
+			}
+
+		} catch (SQLException ex) {
+			System.out.println("===EXCEPTION===\nUsed SQL query (not always the problem):");
+			System.out.println(query);
+			this.reportError(ex);
+		}
+
+		return result.finish();
+	}
+
+	/**
+	 *
+	 * Executes and commits the statements added to the batch. Rolls the batch back when it fails.
+	 *
+	 * @return 			a boolean, indicating whether the batch has been committed.
+	 */
+	protected boolean executeBatch(PooledConnection pooled, PreparedStatement statement, int rows, BatchResult result) {
+		return this.executeBatch(pooled, statement, rows, result, null);
+	}
+
+	protected boolean executeBatch(PooledConnection pooled, PreparedStatement statement, int rows, BatchResult result, BatchCallback callback) {
+		long start = System.nanoTime();
+
+		try {
+			int affected = 0;
+			int[] counts = statement.executeBatch();
+			for (int count : counts) {
+				// Rewritten batches report SUCCESS_NO_INFO for every row.
+				affected += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+			}
+			if (callback != null) {
+				callback.executed(statement);
+			}
+			pooled.commit();
+
+			result.add(rows, affected, true, System.nanoTime() - start);
+			result.counted(counts);
+			return true;
+
+		} catch (SQLException ex) {
+			this.reportError(ex);
+
+			try {
+				statement.clearBatch();
+				pooled.rollback();
+			} catch (SQLException rollback_ex) {
+				System.out.println(rollback_ex.getMessage());
+			}
+
+			result.add(rows, 0, false, System.nanoTime() - start);
+			return false;
+		}
+	}
+
+	/**
+	 *
+	 * @return 			the `INSERT` query for all columns, with a parameter per column.
+	 */
+	protected String insertQuery() {
+		// Building the query.
+		StringBuilder query = new StringBuilder("INSERT INTO " + this.table_name + " (");
+
+		// Id, Name, Description) VALUES (
+		for (int i = 0; i < this.columnDefinitions.size(); i++) {
+			query.append(this.columnDefinitions.get(i).name);
+
+			if (i != this.columnDefinitions.size() - 1) {
+				query.append(", ");
+			}
+		}
+		query.append(") VALUES (");
+
+		// ?, ?, ?, ?);
+		for (int i = 0; i < this.columnDefinitions.size(); i++) {
+			query.append("?");
+			if (i != this.columnDefinitions.size() - 1) {
+				query.append(", ");
+			}
+		}
+		query.append(")");
+
+		return query.toString();
+	}
+
+	/**
+	 *
+	 * @return 			the insert query, updating every other column when a record with the same primary or unique key exists.
+	 */
+	protected String upsertQuery() {
+		StringBuilder query = new StringBuilder(this.insert_query).append(" ON DUPLICATE KEY UPDATE ");
+
+		if (this.columnDefinitions.size() == 1) {
+			return query.append(this.pk.name).append(" = ").append(this.pk.name).toString();
+		}
+
+		for (int i = 1; i < this.columnDefinitions.size(); i++) {
+			String column = this.columnDefinitions.get(i).name;
+			query.append(i == 1 ? "" : ", ").append(column).append(" = VALUES(").append(column).append(")");
+		}
+
+		return query.toString();
+	}
+
+	/**
+	 *
+	 * Binds every column of the model to the parameters of the insert query.
+	 * Empty values are replaced by the default of the column, and an int primary key of 0 by a generated key.
+	 *
+	 * @param  statement		the statement of insertQuery().
+	 * @param  data				the model to be inserted.
+	 * @param  conn				the connection the model is inserted with.
+	 * @return 					true when the database generates the primary key, and it still has to be read back.
+	 */
+	protected boolean bindInsert(PreparedStatement statement, T data, Connection conn) throws SQLException {
+		boolean generated_by_database = false;
+
+		for (int i = 0; i < this.columnDefinitions.size(); i++) {
+			ColumnDefinition columnDefinition = this.columnDefinitions.get(i);
+			Object value = this.mapper.get(data, i);
+
+			// Integer, but no value given
+			if (value instanceof Integer ival && ival == 0 && columnDefinition.type == ColumnDefinitionType.INT) {
+				if (i == 0 && this.id_generator.isGeneratedByDatabase()) {
+					// PK->AUTO_INCREMENT
+					statement.setNull(i + 1, Types.INTEGER);
+					generated_by_database = true;
+				} else if (i == 0) {
+					// PK->generate
+					statement.setInt(i + 1, this.id_generator.nextId(conn));
+				} else {
+					statement.setInt(i + 1, 0);
+				}
+			} else if (value == null) {
+				this.bindEmpty(statement, i + 1, i);
+			} else {
+				this.bindColumn(statement, i + 1, data, i);
+			}
 		}
-	}
 
-	private Connection connectToDatabase() {
-		String url = DatabaseAuth.URL;
-		String username = DatabaseAuth.USERNAME;
-		String password = DatabaseAuth.PASSWORD;
+		return generated_by_database;
+	}
 
-		try {
-			Connection conn;
-			conn = DriverManager.getConnection(url, username, password);
-			conn.setAutoCommit(false);
-			return conn;
-		} catch (SQLException ex) {
-			System.out.println("an exception occured when connecting to the database");
-			System.out.println(ex.getMessage());
-			return null;
+	/**
+	 *
+	 * Binds the empty value of the codec of the column, for a model without a value for it. See TypeCodec.empty().
+	 * Codecs without one, like those of binary values, bind NULL.
+	 */
+	private void bindEmpty(PreparedStatement statement, int index, int column) throws SQLException {
+		TypeCodec<Object> codec = this.codecs[column];
+		Object empty = codec.empty();
+
+		if (empty == null) {
+			statement.setNull(index, codec.sqlType());
+		} else {
+			codec.bind(statement, index, empty);
 		}
 	}
 
-	private ArrayList<ColumnDefinition> getColumnDefinitions() {
-		String query = "SHOW COLUMNS FROM " + this.table_name;
+	/**
+	 *
+	 * Updates a single column.
+	 *
+	 * @param  primary_key		The primary key of the record to be updated
+	 * @param  column			The column to be updated
+	 * @param  new_value		The new value of the column, in the text form of the codec of the column (TypeCodec.parse()).
+	 * @param  column_type		Unused; the column is bound with the codec of the field it is mapped to.
+	 * @return 			a boolean, indicating whether the update has worked.
+	 */
+	@Override
+	public boolean updateField(String primary_key, String column, String new_value, ColumnDefinitionType column_type) {
+		int position = this.columnIndex(column);
+		if (position < 0) {
+			System.out.println("Unknown column " + column + " in table " + this.table_name);
+			return false;
+		}
 
-		ArrayList<ColumnDefinition> columnDefinitions = new ArrayList<>();
+		String query = "UPDATE " + this.table_name + " SET " + column + " = ? WHERE " + this.pk.name + " = ?";
+		TypeCodec<Object> codec = this.codecs[position];
 
-		try {
-			Statement statement = this.conn.createStatement();
-			ResultSet result_set = statement.executeQuery(query);
+		try (PooledConnection pooled = this.borrowConnection()) {
+			PreparedStatement statement = pooled.prepare(query);
+			statement.setString(2, primary_key);
 
-			while (result_set.next()) {
-				columnDefinitions.add(new ColumnDefinition(
-						result_set.getString("field"),
-						ColumnDefinition.typeFrom(result_set.getString("type"))));
+			if (new_value == null) {
+				statement.setNull(1, codec.sqlType());
+			} else {
+				codec.bind(statement, 1, codec.parse(new_value));
 			}
 
-			statement.close();
-			return columnDefinitions;
+			int success = statement.executeUpdate();
+			this.invalidate(primary_key);
+
+			return success != 0;
 
 		} catch (SQLException ex) {
-			System.out.println("===EXCEPTION===\nUsed SQL query (not always the problem):");
-			return null;
+			this.reportError(ex);
+			return false;
 		}
 	}
 
 	/**
 	 *
-	 * An abstract method. It's implementations recieve an ArrayList of values.
-	 * The method is expected to generate a new object, and assign everything to the correct attribute.
-	 *
-	 * @param  values  	a list of all values used to instantiate the new object
-	 * @return      	the newly generated object.
+	 * @return 			the index of the column definition with the given name, ignoring case. -1 when there is none.
 	 */
-	public T generate(ArrayList<String> values) {
-		T generic_obj = this.supplier.get();
-		Class<?> clazz = generic_obj.getClass();
-
-		// For datetimes
-		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-		try {
-			int i = 0;
-			for (ColumnDefinition def: this.columnDefinitions) {
-				Field field = clazz.getDeclaredField(def.name);
-				field.setAccessible(true);
-
-				switch (def.type) {
-					case STRING -> field.set(generic_obj, values.get(i++));
-					case INT -> field.set(generic_obj, Integer.parseInt(values.get(i++)));
-					case DATE -> field.set(generic_obj, LocalDate.parse(values.get(i++), formatter));
-					case BOOL -> field.set(generic_obj, values.get(i++).equals("1"));
-					case DOUBLE -> field.set(generic_obj, Double.parseDouble(values.get(i++)));
-				};
+	private int columnIndex(String column) {
+		for (int i = 0; i < this.columnDefinitions.size(); i++) {
+			if (this.columnDefinitions.get(i).name.equalsIgnoreCase(column)) {
+				return i;
 			}
-
-			return generic_obj;
-
-		} catch (NoSuchFieldException | IllegalAccessException ex) {
-			System.out.println(ex.getMessage());
-			return null;
 		}
+
+		return -1;
 	}
 
 	/**
 	 *
-	 * Executes a `SELECT *` SQL query on the given table.
-	 * Converts retrieved data to the given type.
+	 * Updates a record, based on the primary key of the data.
 	 *
-	 * @return      An ArrayList of all found objects.
+	 * @param  data		a model with the data to be updated.
+	 * @return 			a boolean, indicating whether the update has worked.
 	 */
 	@Override
-	public ArrayList<T> getAll() {
-		return this.getAll("SELECT * FROM " + this.table_name);
+	public boolean update(T data) {
+		if (data == null) {
+			return false;
+		}
+
+		long start = System.nanoTime(), acquired = 0, executed = 0;
+
+		try (PooledConnection pooled = this.borrowConnection()) {
+			acquired = System.nanoTime();
+			PreparedStatement statement = pooled.prepare(this.update_query);
+			this.bindUpdate(statement, data);
+
+			int success = statement.executeUpdate();
+			executed = System.nanoTime();
+			this.invalidate(data);
+
+			this.record(Operation.UPDATE, this.update_query, true, success, this.boundBytes(data), start, acquired, executed);
+			return success != 0;
+
+		} catch (SQLException ex) {
+			this.reportError(ex);
+			this.record(Operation.UPDATE, this.update_query, false, 0, this.boundBytes(data), start, acquired, executed);
+			return false;
+		}
 	}
 
 	/**
 	 *
-	 * Executes a `SELECT *` SQL query on the given table.
-	 * Converts retrieved data to the given type.
+	 * Updates only the columns that differ between the two versions of a record.
+	 * The record is found by the primary key of the original.
 	 *
-	 * @param 	query	The query to be done on the database
-	 * @return      	An ArrayList of all found objects.
+	 * @param  original		the model as it was read from the database.
+	 * @param  modified		the model with the changes to be saved.
+	 * @return 				a boolean, indicating whether the update has worked. True when nothing has changed.
 	 */
 	@Override
-	public ArrayList<T> getAll(String query) {
-
-		try {
-			Statement statement = this.conn.createStatement();
+	public boolean updateChanged(T original, T modified) {
+		if (original == null || modified == null) {
+			return false;
+		}
 
-			ResultSet result_set = statement.executeQuery(query);
+		List<Integer> changed = new ArrayList<>();
+		for (int i = 0; i < this.columnDefinitions.size(); i++) {
+			if (!Objects.equals(this.mapper.get(original, i), this.mapper.get(modified, i))) {
+				changed.add(i);
+			}
+		}
 
-			// output.
-			ArrayList<T> models = new ArrayList<>();
+		if (changed.isEmpty()) {
+			return true;
+		}
 
-			// loop through all results
-			while (result_set.next()) {
+		StringBuilder query = new StringBuilder("UPDATE " + this.table_name + " SET ");
+		for (int i = 0; i < changed.size(); i++) {
+			query.append(this.columnDefinitions.get(changed.get(i)).name).append(" = ?");
 
-				// will hold all columns
-				ArrayList<String> values = new ArrayList<>();
+			if (i != changed.size() - 1) {
+				query.append(", ");
+			}
+		}
+		query.append(" WHERE ").append(this.pk.name).append(" = ?");
 
-				// add all columns.
-				for (ColumnDefinition columnDefinition : this.columnDefinitions) {
-					values.add(result_set.getString(columnDefinition.name));
-				}
+		try (PooledConnection pooled = this.borrowConnection()) {
+			PreparedStatement statement = pooled.prepare(query.toString());
 
-				// use values to generate model T.
-				T model = this.generate(values);
-				models.add(model);
+			for (int i = 0; i < changed.size(); i++) {
+				this.bindColumn(statement, i + 1, modified, changed.get(i));
 			}
+			this.bindColumn(statement, changed.size() + 1, original, 0);
 
-			return models;
+			int success = statement.executeUpdate();
+			this.invalidate(original);
+			this.invalidate(modified);
+
+			return success != 0;
 
 		} catch (SQLException ex) {
-			System.out.println("===EXCEPTION===\nUsed SQL query (not always the problem):");
-			System.out.println(query);
-			System.out.println(ex.getMessage());
-			return null;
+			this.reportError(ex);
+			return false;
 		}
 	}
 
 	/**
 	 *
-	 * Searches for the first record where the given column has the given value.
+	 * Updates all given records, based on their primary keys, in batches of DatabaseConfig.BATCH_SIZE.
 	 *
-	 * @param column		The column in the database table to search for.
-	 * @param value			The value to check for in the given column.
-	 * @return      		If found, the record, converted to a model. Otherwise null.
+	 * @param  data		the models with the data to be updated.
+	 * @return 			the results of every batch that was sent.
 	 */
 	@Override
-	public T getBy(String column, String value) {
-		String query = "";
+	public BatchResult updateAll(Collection<T> data) {
+		return this.updateAll(data, DatabaseConfig.BATCH_SIZE);
+	}
 
-		try {
-			query = String.format("SELECT * FROM %s WHERE %s = ?", this.table_name, column);
-			PreparedStatement statement = this.conn.prepareStatement(query);
-			statement.setString(1, value);
+	public BatchResult updateAll(Collection<T> data, int batch_size) {
+		BatchResult result = this.executeInBatches(this.update_query, data.iterator(), batch_size,
+				(pooled, statement, model) -> this.bindUpdate(statement, model));
+
+		for (T model : data) {
+			this.invalidate(model);
+		}
 
-			ResultSet result_set = statement.executeQuery();
+		return result;
+	}
 
-			result_set.next();
+	/**
+	 *
+	 * @return 			the `UPDATE` query for all columns but the primary key, with the primary key as last parameter.
+	 */
+	protected String updateQuery() {
+		StringBuilder query = new StringBuilder("UPDATE " + this.table_name + " SET ");
 
-			ArrayList<String> values = new ArrayList<>();
+		// start at 1 because the first item is primary key.
+		for (int i = 1; i < this.columnDefinitions.size(); i++) {
+			query.append(this.columnDefinitions.get(i).name).append(" = ?");
 
-			// add all columns.
-			for (ColumnDefinition col : this.columnDefinitions) {
-				values.add(result_set.getString(col.name));
+			if (i != this.columnDefinitions.size() - 1) {
+				query.append(", ");
 			}
+		}
 
-			// use values to generate model T.
-			statement.close();
-			return this.generate(values);
+		query.append(" WHERE ").append(this.pk.name).append(" = ?");
 
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-			return null;
-		}
+		return query.toString();
 	}
 
+	/**
+	 *
+	 * Binds the model to the parameters of the update query.
+	 */
+	protected void bindUpdate(PreparedStatement statement, T data) throws SQLException {
+		for (int i = 1; i < this.columnDefinitions.size(); i++) {
+			this.bindColumn(statement, i, data, i);
+		}
+
+		this.bindColumn(statement, this.columnDefinitions.size(), data, 0);
+	}
 
 	/**
 	 *
-	 * Searches for the first record where the primary key (first item in records) matches the given primary key.
+	 * Binds the value of a column of the model to a parameter, with the setter of its codec.
 	 *
-	 * @param  primary_key  The primary key used to search for the model.
-	 * @return      		If found, the model. Otherwise null.
+	 * @param  statement	the statement to bind the value to.
+	 * @param  index		the 1-based parameter index.
+	 * @param  data			the model to read the value from.
+	 * @param  column		the index of the column in columnDefinitions.
 	 */
-	@Override
-	public T getById(int primary_key) {
-		return this.getBy(this.pk.name, String.valueOf(primary_key));
+	protected void bindColumn(PreparedStatement statement, int index, T data, int column) throws SQLException {
+		Class<?> field_type = this.mapper.getFieldType(column);
+
+		// Primitive fields are read without boxing.
+		if (field_type == int.class) {
+			statement.setInt(index, this.mapper.getInt(data, column));
+			return;
+		} else if (field_type == long.class) {
+			statement.setLong(index, this.mapper.getLong(data, column));
+			return;
+		} else if (field_type == double.class) {
+			statement.setDouble(index, this.mapper.getDouble(data, column));
+			return;
+		} else if (field_type == boolean.class) {
+			statement.setBoolean(index, this.mapper.getBoolean(data, column));
+			return;
+		}
+
+		Object value = this.mapper.get(data, column);
+		if (value == null) {
+			statement.setNull(index, this.codecs[column].sqlType());
+		} else {
+			this.codecs[column].bind(statement, index, value);
+		}
 	}
 
 	/**
 	 *
-	 * Searches for the first record where the primary key (first item in records) matches the given primary key.
-	 *
-	 * @param  primary_key  The primary key used to search for the model.
-	 * @return      		If found, the model. Otherwise null.
+	 * Binds a value to a parameter compared with the column, with the codec of the value's type.
 	 */
-	@Override
-	public T getById(String primary_key) {
-		return this.getBy(this.pk.name, primary_key);
+	protected void bindValue(PreparedStatement statement, int index, ColumnDefinition column, Object value) throws SQLException {
+		if (value == null) {
+			int position = this.columnDefinitions.indexOf(column);
+			statement.setNull(index, position < 0 ? Types.VARCHAR : this.codecs[position].sqlType());
+			return;
+		}
+
+		TypeCodecs.forValue(value, column).bind(statement, index, value);
 	}
 
 	/**
 	 *
-	 * Creates a new record in the database from the data.
+	 * Deletes all records of the table.
+	 * Uses `TRUNCATE TABLE`, and falls back to `DELETE FROM` when the table can't be truncated,
+	 * for example because it is referenced by a foreign key.
+	 * Within a Transaction it always uses `DELETE FROM`, since `TRUNCATE TABLE` commits implicitly.
 	 *
-	 * @param  data		a model with the data to be inserted in the database.
 	 * @return 			a boolean, indicating whether the update has worked.
 	 */
 	@Override
-	public boolean create(T data) {
-		if (data == null) {
-			return false;
-		}
-
-		try {
-			// Building the query.
-			StringBuilder query = new StringBuilder("INSERT INTO " + this.table_name + " (");
-
-			// Id, Name, Description) VALUES (
-			for (int i = 0; i < this.columnDefinitions.size(); i++) {
-				query.append(this.columnDefinitions.get(i).name);
-
-				if (i != this.columnDefinitions.size() - 1) {
-					query.append(", ");
-				}
-			}
-			query.append(") VALUES (");
-
-			Class<?> c = data.getClass();
-
-			// ?, ?, ?, ?);
-			for (int i = 0; i < this.columnDefinitions.size(); i++) {
-				query.append("?");
-				if (i != this.columnDefinitions.size() - 1) {
-					query.append(", ");
-				}
-			}
-			query.append(");");
-
-			// Preparing statement
-			PreparedStatement statement = this.conn.prepareStatement(query.toString());
-
-			int i = 0;
-			for (ColumnDefinition columnDefinition : this.columnDefinitions) {
-				Field field = c.getDeclaredField(columnDefinition.name);
-				field.setAccessible(true);
-
-				// Get the value out of the column
-				var val = field.get(data);
-				String value = "";
-
-				// In case of an integer.
-				if (columnDefinition.type == ColumnDefinitionType.INT && val instanceof Integer ival) {
-					if (ival != 0) {
-						// Integer, but it has a value
-						value = val.toString();
-					} else {
-						// Integer, but no value given
-						if (i == 0) {
-							// PK->generate
-							value = String.valueOf(this.generateIntPK());
-						} else {
-							// Default column value
-							value = columnDefinition.getEmptyValue();
-						}
-					}
-				} else {		// All other types
-					if (val != null) {
-						// A value was given
-						value = val.toString();
-					} else {
-						// Default column value
-						value = columnDefinition.getEmptyValue();
-					}
-				}
-
+	public boolean truncate() {
+		try (PooledConnection pooled = this.borrowConnection();
+			 Statement statement = pooled.createStatement()) {
 
-				switch (columnDefinition.type) {
-					case INT -> statement.setInt(++i, Integer.parseInt(value));
-					case BOOL -> statement.setBoolean(++i, value.equals("true"));
-					case DOUBLE -> statement.setDouble(++i, Double.parseDouble(value));
-					case DATE -> statement.setDate(++i, Date.valueOf(LocalDate.parse(value)));
-					default -> statement.setString(++i, value);
+			if (pooled.getTransaction() != null) {
+				statement.executeUpdate("DELETE FROM " + this.table_name);
+			} else {
+				try {
+					statement.executeUpdate("TRUNCATE TABLE " + this.table_name);
+				} catch (SQLException ex) {
+					statement.executeUpdate("DELETE FROM " + this.table_name);
 				}
 			}
+			this.invalidateAll();
 
-			// Executing the array
-			int success = statement.executeUpdate();
-
-			// save the changes.
-			this.conn.commit();
-			statement.close();
+			return true;
 
-			return success != 0;
-
-		} catch (SQLException | NoSuchFieldException | IllegalAccessException ex) {
-			System.out.println(ex.getMessage());
+		} catch (SQLException ex) {
+			this.reportError(ex);
 			return false;
 		}
 	}
 
 	/**
 	 *
-	 * Updates a single column.
+	 * Deletes all given records, based on their primary keys.
+	 * Uses `DELETE ... WHERE pk IN (...)` with up to DatabaseConfig.BATCH_SIZE keys per statement, and one commit per statement.
 	 *
-	 * @param  primary_key		The primary key of the record to be updated
-	 * @param  column			The column to be updated
-	 * @param  new_value		The new value of the column.
-	 * @return 			a boolean, indicating whether the update has worked.
+	 * @param  data		the models to be deleted.
+	 * @return 			the results of every batch that was sent.
 	 */
 	@Override
-	public boolean updateField(String primary_key, String column, String new_value, ColumnDefinitionType column_type) {
-		try {
-			String query = "UPDATE " + this.table_name + " SET " + column + " = ? WHERE " + this.pk.name + " = ?";
+	public BatchResult deleteAll(Collection<T> data) {
+		return this.deleteAll(data, DatabaseConfig.BATCH_SIZE);
+	}
 
-			PreparedStatement statement = this.conn.prepareStatement(query);
-			statement.setString(2, primary_key);
+	public BatchResult deleteAll(Collection<T> data, int batch_size) {
+		BatchResult result = new BatchResult();
+		batch_size = Math.max(1, batch_size);
 
-			switch (column_type) {
-				case INT -> statement.setInt(1, Integer.parseInt(new_value));
-				case BOOL -> statement.setBoolean(1, new_value.equals("1"));
-				case DOUBLE -> statement.setDouble(1, Double.parseDouble(new_value));
-				default -> statement.setString(1, new_value);
+		List<T> models = new ArrayList<>(data.size());
+		for (T model : data) {
+			if (model != null) {
+				models.add(model);
 			}
+		}
 
-			int success = statement.executeUpdate();
+		try (PooledConnection pooled = this.borrowConnection()) {
+			pooled.begin();
 
-			// save the changes.
-			this.conn.commit();
-			statement.close();
+			for (int from = 0; from < models.size(); from += batch_size) {
+				List<T> batch = models.subList(from, Math.min(from + batch_size, models.size()));
 
-			return success != 0;
+				if (!this.deleteBatch(pooled, batch, result)) {
+					break;
+				}
+			}
 
 		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-			return false;
+			this.reportError(ex);
+		}
+
+		for (T model : models) {
+			this.invalidate(model);
 		}
+
+		return result.finish();
 	}
 
 	/**
 	 *
-	 * Updates a record, based on the primary key of the data.
+	 * Deletes the models with `IN` queries of the sizes in IN_CHUNK_SIZES, and commits them together.
+	 * Like findIn(), the last chunk is padded with its last key, so only a few distinct statements are cached.
 	 *
-	 * @param  data		a model with the data to be updated.
-	 * @return 			a boolean, indicating whether the update has worked.
+	 * @return 			a boolean, indicating whether the batch has been committed.
 	 */
-	public boolean update(T data) {
-		if (data == null) {
-			return false;
-		}
+	private boolean deleteBatch(PooledConnection pooled, List<T> batch, BatchResult result) {
+		long start = System.nanoTime();
 
 		try {
-			// Building the query.
-			StringBuilder query = new StringBuilder("UPDATE " + this.table_name + " SET ");
-			Class<?> c = data.getClass();
-
-			// start at 1 because the first item is primary key.
-			for (int i = 1; i < this.columnDefinitions.size(); i++) {
-				Field field = c.getDeclaredField(this.columnDefinitions.get(i).name);
-				field.setAccessible(true);
-
-				String value = field.get(data).toString();
-
-				// boolean handling
-				if (this.columnDefinitions.get(i).type == ColumnDefinitionType.BOOL) {
-					value = value.equals("true") ? "1" : "0";
+			int affected = 0;
+			for (int from = 0; from < batch.size(); ) {
+				int size = inChunkSize(batch.size() - from);
+				int to = Math.min(from + size, batch.size());
+
+				PreparedStatement statement = pooled.prepare(this.deleteInQuery(size));
+				for (int i = 0; i < size; i++) {
+					this.bindColumn(statement, i + 1, batch.get(Math.min(from + i, to - 1)), 0);
 				}
+				affected += statement.executeUpdate();
 
-				query.append(this.columnDefinitions.get(i).name).append(" = '").append(value).append("'");
-
-				if (i != this.columnDefinitions.size() - 1) {
-					query.append(", ");
-				}
+				from = to;
 			}
+			pooled.commit();
 
-			Field pk = c.getDeclaredField(this.pk.name);
-			pk.setAccessible(true);
-
-			query.append(" WHERE ").append(this.pk.name).append(" = '").append(pk.get(data)).append("'");
-
-			// Executing the query
-			Statement statement = this.conn.createStatement();
-
-			int success = statement.executeUpdate(query.toString());
+			result.add(batch.size(), affected, true, System.nanoTime() - start);
+			return true;
 
-			// save the changes.
-			this.conn.commit();
-			statement.close();
+		} catch (SQLException ex) {
+			this.reportError(ex);
 
-			return success != 0;
+			try {
+				pooled.rollback();
+			} catch (SQLException rollback_ex) {
+				System.out.println(rollback_ex.getMessage());
+			}
 
-		} catch (Exception ex) {
-			System.out.println(ex.getMessage());
+			result.add(batch.size(), 0, false, System.nanoTime() - start);
 			return false;
 		}
 	}
 
 	/**
 	 *
-	 * Deletes all records of the table.
-	 *
-	 * @return 			a boolean, indicating whether the update has worked.
+	 * @return 			a `DELETE` query for the given number of primary keys.
 	 */
-	@Override
-	public boolean truncate() {
-		for (T model: this.getAll()) {
-			if (!this.delete(model)) {
-				return false;
-			}
+	protected String deleteInQuery(int keys) {
+		StringBuilder query = new StringBuilder("DELETE FROM " + this.table_name + " WHERE " + this.pk.name + " IN (");
+
+		for (int i = 0; i < keys; i++) {
+			query.append(i == 0 ? "?" : ", ?");
 		}
 
-		return true;
+		return query.append(")").toString();
 	}
 
 	/**
@@ -461,32 +2013,27 @@ public abstract class BaseRepository<T> implements IDataRepository<T>  {
 			return false;
 		}
 
-		try {
-			// Retrieving the primary key value.
-			Class<?> c = data.getClass();
-
-			Field primary_key = c.getDeclaredField(this.pk.name);
-			primary_key.setAccessible(true);
-
-			String pk_val = primary_key.get(data).toString();
+		// Retrieving the primary key value.
+		String pk_val = this.mapper.get(data, 0).toString();
+		long start = System.nanoTime(), acquired = 0, executed = 0;
 
-			// Building the SQL query
-			String query = String.format("DELETE FROM %s WHERE %s = ?", this.table_name, this.pk.name);
+		try (PooledConnection pooled = this.borrowConnection()) {
+			acquired = System.nanoTime();
 
 			// Executing the query
-			PreparedStatement statement = this.conn.prepareStatement(query);
-			statement.setString(1, pk_val);
+			PreparedStatement statement = pooled.prepare(this.delete_query);
+			this.bindColumn(statement, 1, data, 0);
 
 			int success = statement.executeUpdate();
+			executed = System.nanoTime();
+			this.invalidate(pk_val);
 
-			// save the changes.
-			this.conn.commit();
-			statement.close();
-
+			this.record(Operation.DELETE, this.delete_query, true, success, pk_val.length(), start, acquired, executed);
 			return success != 0;
 
-		} catch (SQLException | NoSuchFieldException | IllegalAccessException ex) {
-			System.out.println(ex.getMessage());
+		} catch (SQLException ex) {
+			this.reportError(ex);
+			this.record(Operation.DELETE, this.delete_query, false, 0, pk_val.length(), start, acquired, executed);
 			return false;
 		}
 	}
@@ -494,95 +2041,44 @@ public abstract class BaseRepository<T> implements IDataRepository<T>  {
 	/**
 	 *
 	 * Displays all records in a table.
+	 * The records are counted on the server and printed as they are streamed, so the table isn't loaded in memory.
 	 */
 	public void printAll() {
-		var records = this.getAll();
-		if (records == null || records.size() == 0) {
+		long count = this.count();
+		if (count <= 0) {
 			System.out.println("There are no records in this table");
 			return;
 		}
 
-		System.out.println("Data retrieved from table [" + this.table_name + "] (" + records.size() + " records)");
-
-		String[][] table = new String[records.size()][];
-
-
-		Class<?> c = records.get(0).getClass();
-
-		// Save data
-		int i = 0;
-		for (T record: records) {
-
-			String[] column_data = new String[this.columnDefinitions.size()];
-
-			for (int j = 0; j < this.columnDefinitions.size(); j++) {
-				try {
-					Field field = c.getDeclaredField(this.columnDefinitions.get(j).name);
-					field.setAccessible(true);
-
-					var val = field.get(record);
-					if (val == null) {
-						continue;
-					}
-
-					String value = val.toString();
-
-					// Strip too long text
-					if (value.length() >= 20) {
-						value = value.substring(0, 20) + "...";
-					}
-
-					column_data[j] = value;
-				} catch (NoSuchFieldException | IllegalAccessException ex) {
-					continue;
-				}
-			}
-
-			table[i++] = column_data;
-		}
+		System.out.println("Data retrieved from table [" + this.table_name + "] (" + count + " records)");
 
 		// Head
 		StringBuilder header = new StringBuilder();
-		for (i = 0; i < this.columnDefinitions.size(); i++) {
+		for (int i = 0; i < this.columnDefinitions.size(); i++) {
 			header.append(String.format("| %-25s", this.columnDefinitions.get(i).name));
 		}
 		System.out.println(header + "|");
 
 		// Body
-		for (i = 0; i < table.length; i++) {
-			String[] row = table[i];
+		try (Stream<T> records = this.streamAll()) {
+			records.forEach(record -> {
+				StringBuilder body = new StringBuilder();
 
-			StringBuilder body = new StringBuilder();
-			for (String col: row) {
-				body.append(String.format("| %-25s", col));
-			}
-
-			System.out.println(body + "|");
-		}
-	}
-
-	protected int generateIntPK() {
-		ColumnDefinition pk = this.pk;
-
-		if (pk.type != ColumnDefinitionType.INT) {
-			return -1;
-		}
-
-		try {
-			String query = "SELECT MAX(" + pk.name + ") FROM " + this.table_name;
-			Statement statement = this.conn.createStatement();
+				for (int j = 0; j < this.columnDefinitions.size(); j++) {
+					var val = this.mapper.get(record, j);
+					String value = val == null ? null : val.toString();
 
-			ResultSet result_set = statement.executeQuery(query);
-			result_set.next();
+					// Strip too long text
+					if (value != null && value.length() >= 20) {
+						value = value.substring(0, 20) + "...";
+					}
 
-			int biggest_val = result_set.getInt(1);
-			return biggest_val + 1;
+					body.append(String.format("| %-25s", value));
+				}
 
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-			return -1;
+				System.out.println(body + "|");
+			});
 		}
-
 	}
 
 }
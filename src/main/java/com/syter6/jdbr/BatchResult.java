@@ -0,0 +1,87 @@
+package com.syter6.jdbr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * The outcome of a bulk operation: what happened to every batch, and how fast it went.
+ */
+public class BatchResult {
+
+	public record Batch(int rows, int affected, boolean committed, long nanos) {}
+
+	private final List<Batch> batches = new ArrayList<>();
+	private final long start = System.nanoTime();
+	private long elapsed_nanos;
+
+	void add(int rows, int affected, boolean committed, long nanos) {
+		this.batches.add(new Batch(rows, affected, committed, nanos));
+	}
+
+	/**
+	 *
+	 * Receives the update counts of every committed batch, for results that need more than the number of affected rows.
+	 */
+	void counted(int[] counts) {
+	}
+
+	BatchResult finish() {
+		this.elapsed_nanos = System.nanoTime() - this.start;
+		return this;
+	}
+
+	public List<Batch> getBatches() {
+		return Collections.unmodifiableList(this.batches);
+	}
+
+	/**
+	 *
+	 * @return      true when every batch has been committed.
+	 */
+	public boolean isSuccess() {
+		for (Batch batch : this.batches) {
+			if (!batch.committed) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int getRowsCommitted() {
+		int rows = 0;
+		for (Batch batch : this.batches) {
+			if (batch.committed) {
+				rows += batch.rows;
+			}
+		}
+		return rows;
+	}
+
+	public int getRowsAffected() {
+		int affected = 0;
+		for (Batch batch : this.batches) {
+			affected += batch.affected;
+		}
+		return affected;
+	}
+
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(this.elapsed_nanos);
+	}
+
+	public double getRowsPerSecond() {
+		if (this.elapsed_nanos == 0) {
+			return 0;
+		}
+		return this.getRowsCommitted() * 1_000_000_000.0 / this.elapsed_nanos;
+	}
+
+	@Override
+	public String toString() {
+		return this.getRowsCommitted() + " rows in " + this.batches.size() + " batches ("
+				+ this.getElapsedMillis() + "ms, " + Math.round(this.getRowsPerSecond()) + " rows/s)";
+	}
+}
@@ -0,0 +1,83 @@
+package com.syter6.jdbr;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Hands out ids from a reserved block, without touching the database until the block runs out.
+ * Taking an id from the current block is lock-free; only reserving the next block is synchronized.
+ */
+public abstract class BlockIdGenerator implements IdGenerator {
+
+	protected static class Block {
+		// A long, so threads racing past the end of the block can't overflow it.
+		private final AtomicLong next;
+		private final long limit;
+
+		/**
+		 *
+		 * @param first		The first id of the block.
+		 * @param limit		The first id after the block.
+		 */
+		public Block(int first, int limit) {
+			this.next = new AtomicLong(first);
+			this.limit = limit;
+		}
+	}
+
+	private static final Block EMPTY = new Block(0, 0);
+
+	private volatile Block block = EMPTY;
+
+	// One past the highest id handed out so far.
+	private final AtomicLong handed_out = new AtomicLong();
+
+	@Override
+	public int nextId(Connection conn) throws SQLException {
+		while (true) {
+			Block current = this.block;
+
+			long id = current.next.getAndIncrement();
+			if (id < current.limit) {
+				this.handed_out.accumulateAndGet(id + 1, Math::max);
+				return (int) id;
+			}
+
+			synchronized (this) {
+				// Another thread may have reserved a new block while we waited.
+				if (this.block == current) {
+					this.block = this.reserve(conn);
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * Gives up the rest of the current block, so the next id comes from a newly reserved block.
+	 */
+	@Override
+	public void reset() {
+		Block current = this.block;
+		current.next.accumulateAndGet(current.limit, Math::max);
+	}
+
+	/**
+	 *
+	 * @return      	one past the highest id handed out by this generator, so new blocks can start after it.
+	 */
+	protected long getHandedOut() {
+		return this.handed_out.get();
+	}
+
+	/**
+	 *
+	 * Reserves the next block of ids.
+	 *
+	 * @param conn		The connection the record is inserted with.
+	 * @return      	The reserved block.
+	 */
+	protected abstract Block reserve(Connection conn) throws SQLException;
+}
@@ -0,0 +1,89 @@
+package com.syter6.jdbr;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ *
+ * Tracks the statement a task is executing, so the task can be cancelled with Statement.cancel().
+ * Pooled connections register their statements with the scope of the current thread, if any.
+ */
+class CancellationScope {
+
+	private static final ThreadLocal<CancellationScope> current = new ThreadLocal<>();
+
+	private PooledConnection connection;
+	private Statement statement;
+	private boolean cancelled = false;
+
+	static CancellationScope current() {
+		return current.get();
+	}
+
+	void enter() {
+		current.set(this);
+	}
+
+	void exit() {
+		current.remove();
+		synchronized (this) {
+			this.connection = null;
+			this.statement = null;
+		}
+	}
+
+	/**
+	 *
+	 * Called by a pooled connection when it hands out a statement on this thread.
+	 */
+	static void register(PooledConnection connection, Statement statement) throws SQLException {
+		CancellationScope scope = current.get();
+		if (scope == null) {
+			return;
+		}
+
+		synchronized (scope) {
+			if (scope.cancelled) {
+				throw new SQLException("The operation has been cancelled");
+			}
+			scope.connection = connection;
+			scope.statement = statement;
+		}
+	}
+
+	/**
+	 *
+	 * Called by a pooled connection when it is returned, so a late cancel can't hit the next borrower.
+	 */
+	static void unregister(PooledConnection connection) {
+		CancellationScope scope = current.get();
+		if (scope == null) {
+			return;
+		}
+
+		synchronized (scope) {
+			if (scope.connection == connection) {
+				scope.connection = null;
+				scope.statement = null;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * Cancels the statement that is running, and refuses to hand out new ones.
+	 */
+	void cancel() {
+		synchronized (this) {
+			this.cancelled = true;
+
+			if (this.statement != null) {
+				try {
+					this.statement.cancel();
+				} catch (SQLException ex) {
+					System.out.println(ex.getMessage());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package com.syter6.jdbr;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * Approximates least recently used with the CLOCK algorithm: a hit only sets a flag on the key, without taking a lock.
+ * Looking for a victim walks the keys in insertion order, giving every key that was hit since the last pass a second chance.
+ * The default policy of EntityCache.
+ */
+public class ClockEvictionPolicy implements EvictionPolicy {
+
+	private static final class Node {
+		private final String key;
+		private volatile boolean referenced = false;
+
+		private Node(String key) {
+			this.key = key;
+		}
+	}
+
+	private final ConcurrentHashMap<String, Node> nodes = new ConcurrentHashMap<>();
+	private final ConcurrentLinkedQueue<Node> clock = new ConcurrentLinkedQueue<>();
+
+	// The length of the clock, kept apart since ConcurrentLinkedQueue.size() walks the queue.
+	// Only approximate under concurrent use, which is enough to decide when to compact.
+	private final AtomicInteger length = new AtomicInteger();
+	private final AtomicBoolean compacting = new AtomicBoolean(false);
+
+	@Override
+	public void added(String key) {
+		Node node = new Node(key);
+		this.nodes.put(key, node);
+		this.clock.add(node);
+		this.length.incrementAndGet();
+		this.compact();
+	}
+
+	@Override
+	public void accessed(String key) {
+		Node node = this.nodes.get(key);
+		if (node != null && !node.referenced) {
+			node.referenced = true;
+		}
+	}
+
+	@Override
+	public void removed(String key) {
+		// The node stays in the clock until the hand passes it, or the clock is compacted.
+		this.nodes.remove(key);
+		this.compact();
+	}
+
+	@Override
+	public String victim() {
+		// Every live node is passed at most twice: once to clear its flag, once to be picked.
+		int passes = 2 * this.nodes.size() + 1;
+
+		Node node;
+		while (passes-- > 0 && (node = this.clock.poll()) != null) {
+			this.length.decrementAndGet();
+			if (this.nodes.get(node.key) != node) {
+				// Removed, or added again with a newer node.
+				passes++;
+				continue;
+			}
+			if (node.referenced) {
+				node.referenced = false;
+				this.clock.add(node);
+				this.length.incrementAndGet();
+				continue;
+			}
+
+			// The cache removes the picked key, which makes the node stale.
+			return node.key;
+		}
+
+		return null;
+	}
+
+	/**
+	 *
+	 * @return 			the number of nodes in the clock, including stale ones.
+	 */
+	int clockLength() {
+		return this.clock.size();
+	}
+
+	/**
+	 *
+	 * Drops stale nodes once they make up more than half of the clock.
+	 * The hand only runs when the cache is full, so without this a cache that keeps
+	 * removing and adding keys below its capacity would grow the clock without bound.
+	 */
+	private void compact() {
+		if (this.length.get() <= 2 * this.nodes.size() + 16 || !this.compacting.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			this.clock.removeIf(node -> this.nodes.get(node.key) != node);
+			this.length.set(this.clock.size());
+		} finally {
+			this.compacting.set(false);
+		}
+	}
+}
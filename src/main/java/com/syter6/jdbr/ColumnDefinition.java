@@ -4,8 +4,8 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
 public class ColumnDefinition {
-	public String name;
-	public ColumnDefinitionType type;
+	public final String name;
+	public final ColumnDefinitionType type;
 
 	public ColumnDefinition(String name) {
 		this(name, ColumnDefinitionType.STRING);
@@ -21,10 +21,10 @@ public class ColumnDefinition {
 		var formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
 		return switch (this.type) {
-			case INT -> "0";
+			case INT, LONG -> "0";
 			case BOOL -> "false";
 			case DATE -> LocalDate.now().format(formatter);
-			case DOUBLE -> "0.0";
+			case DOUBLE, DECIMAL -> "0.0";
 			default -> "null";
 		};
 	}
@@ -34,19 +34,37 @@ public class ColumnDefinition {
 		return this.name + " (" + this.type + ")";
 	}
 
+	/**
+	 *
+	 * Maps a column type, as `SHOW COLUMNS` or `information_schema` return it, to its category.
+	 * Only the base type is compared, without length, precision or attributes, so `point` isn't mistaken for an int.
+	 *
+	 * @param type		The column type, like `int(11) unsigned` or `character varying(255)`.
+	 * @return      	The category of the column. STRING for types without a category of their own, like spatial types.
+	 */
 	public static ColumnDefinitionType typeFrom(String type) {
-		if (type.contains("varchar")) {
-			return ColumnDefinitionType.STRING;
-		} else if (type.contains("tinyint")) {
-			return ColumnDefinitionType.BOOL;
-		} else if (type.contains("int")) {
-			return ColumnDefinitionType.INT;
-		} else if (type.contains("decimal")) {
-			return ColumnDefinitionType.DOUBLE;
-		} else if (type.contains("datetime")) {
-			return ColumnDefinitionType.DATE;
-		} else {
-			return ColumnDefinitionType.STRING;
-		}
+		String full = type.toLowerCase().trim();
+		int paren = full.indexOf('(');
+		String base = (paren < 0 ? full : full.substring(0, paren))
+				.replace(" unsigned", "").replace(" zerofill", "").trim();
+
+		return switch (base) {
+			case "char", "varchar", "character", "character varying", "nchar", "nvarchar", "varchar_ignorecase",
+				 "text", "tinytext", "mediumtext", "longtext", "clob", "character large object",
+				 "enum", "set", "json", "uuid", "time", "year" -> ColumnDefinitionType.STRING;
+			case "binary", "varbinary", "binary varying", "blob", "tinyblob", "mediumblob", "longblob",
+				 "binary large object", "bytea" -> ColumnDefinitionType.BINARY;
+			// BIT(1) holds a flag, wider BITs are read as bytes.
+			case "bit" -> full.equals("bit") || full.equals("bit(1)") ? ColumnDefinitionType.BOOL : ColumnDefinitionType.BINARY;
+			case "bool", "boolean", "tinyint" -> ColumnDefinitionType.BOOL;
+			case "bigint", "int8" -> ColumnDefinitionType.LONG;
+			case "int", "integer", "smallint", "mediumint", "int2", "int4", "serial" -> ColumnDefinitionType.INT;
+			case "decimal", "numeric", "dec", "fixed" -> ColumnDefinitionType.DECIMAL;
+			case "double", "double precision", "float", "real", "float4", "float8", "decfloat" -> ColumnDefinitionType.DOUBLE;
+			case "date", "datetime", "timestamp", "timestamp with time zone", "timestamp without time zone",
+				 "timestamptz" -> ColumnDefinitionType.DATE;
+			// Values are converted by the codec of the field type, so an unknown column type only needs a placeholder.
+			default -> ColumnDefinitionType.STRING;
+		};
 	}
 }
@@ -3,7 +3,10 @@ package com.syter6.jdbr;
 public enum ColumnDefinitionType {
 	STRING,
 	INT,
+	LONG,
 	BOOL,
 	DATE,
-	DOUBLE
+	DOUBLE,
+	DECIMAL,
+	BINARY
 }
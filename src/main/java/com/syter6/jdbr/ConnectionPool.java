@@ -0,0 +1,346 @@
+package com.syter6.jdbr;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConnectionPool {
+
+	private static final ConcurrentHashMap<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+
+	private final String url;
+	private final String username;
+	private final String password;
+
+	private final int max_size;
+	private final long max_wait_millis;
+	private final long idle_timeout_nanos;
+	private final boolean validate_on_borrow;
+	private final int validation_timeout_seconds;
+	private final int statement_cache_size;
+
+	// One permit per connection that may be open at the same time (borrowed or idle).
+	private final Semaphore permits;
+
+	// Most recently returned connections are at the head.
+	private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+
+	private volatile boolean closed = false;
+
+	// Metrics
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong destroyed = new AtomicLong();
+	private final AtomicLong borrowed = new AtomicLong();
+	private final AtomicLong active = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong wait_nanos = new AtomicLong();
+	private final AtomicLong statement_hits = new AtomicLong();
+	private final AtomicLong statement_misses = new AtomicLong();
+
+	public ConnectionPool(String url, String username, String password) {
+		this.url = url;
+		this.username = username;
+		this.password = password;
+
+		this.max_size = DatabaseConfig.POOL_MAX_SIZE;
+		this.max_wait_millis = DatabaseConfig.POOL_MAX_WAIT_MILLIS;
+		this.idle_timeout_nanos = TimeUnit.MILLISECONDS.toNanos(DatabaseConfig.POOL_IDLE_TIMEOUT_MILLIS);
+		this.validate_on_borrow = DatabaseConfig.POOL_VALIDATE_ON_BORROW;
+		this.validation_timeout_seconds = DatabaseConfig.POOL_VALIDATION_TIMEOUT_SECONDS;
+		this.statement_cache_size = DatabaseConfig.STATEMENT_CACHE_SIZE;
+
+		this.permits = new Semaphore(this.max_size, true);
+	}
+
+	/**
+	 *
+	 * Returns the shared pool for the credentials in DatabaseAuth.
+	 * The pool is created on first use, using the settings in DatabaseConfig.
+	 *
+	 * @return      the pool shared by all repositories using the same URL and username.
+	 */
+	public static ConnectionPool getInstance() {
+		return getInstance(DatabaseAuth.URL, DatabaseAuth.USERNAME, DatabaseAuth.PASSWORD);
+	}
+
+	public static ConnectionPool getInstance(String url, String username, String password) {
+		String key = username + "@" + url;
+
+		ConnectionPool pool = pools.get(key);
+		if (pool == null || pool.closed) {
+			pool = pools.compute(key, (k, existing) ->
+					existing == null || existing.closed ? new ConnectionPool(url, username, password) : existing);
+		}
+
+		return pool;
+	}
+
+	/**
+	 *
+	 * Closes every shared pool. Borrowed connections are closed when they are returned.
+	 */
+	public static void closeAll() {
+		for (ConnectionPool pool : pools.values()) {
+			pool.close();
+		}
+		pools.clear();
+	}
+
+	/**
+	 *
+	 * Borrows a connection, waiting at most DatabaseConfig.POOL_MAX_WAIT_MILLIS when all connections are in use.
+	 * Closing the returned connection hands it back to the pool.
+	 * When a Transaction on this pool is running on the current thread, its connection is returned instead.
+	 *
+	 * @return      	a connection in autocommit mode, or the connection of the current transaction.
+	 */
+	public PooledConnection borrow() throws SQLException {
+		Transaction transaction = Transaction.current();
+		if (transaction != null && transaction.getPool() == this) {
+			return transaction.getPooledConnection();
+		}
+
+		return this.borrowOutsideTransaction();
+	}
+
+	/**
+	 *
+	 * Borrows a connection of its own, even when a Transaction is running on the current thread.
+	 *
+	 * @return      	a connection in autocommit mode.
+	 */
+	public PooledConnection borrowOutsideTransaction() throws SQLException {
+		if (this.closed) {
+			throw new SQLException("The connection pool has been closed");
+		}
+
+		long start = System.nanoTime();
+		try {
+			if (!this.permits.tryAcquire(this.max_wait_millis, TimeUnit.MILLISECONDS)) {
+				this.timeouts.incrementAndGet();
+				throw new SQLTimeoutException("Timed out after " + this.max_wait_millis + "ms waiting for a connection");
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection", ex);
+		} finally {
+			this.wait_nanos.addAndGet(System.nanoTime() - start);
+		}
+
+		return this.take();
+	}
+
+	/**
+	 *
+	 * Borrows a connection of its own without waiting, for callers that can go elsewhere when the pool is busy.
+	 *
+	 * @return      	a connection in autocommit mode, or null when all connections are in use.
+	 */
+	public PooledConnection tryBorrow() throws SQLException {
+		if (this.closed) {
+			throw new SQLException("The connection pool has been closed");
+		}
+		if (!this.permits.tryAcquire()) {
+			return null;
+		}
+
+		return this.take();
+	}
+
+	// Hands out an idle or new connection, for a permit that has already been acquired.
+	private PooledConnection take() throws SQLException {
+		try {
+			PooledConnection pooled;
+			while ((pooled = this.idle.pollFirst()) != null) {
+				if (this.isUsable(pooled)) {
+					break;
+				}
+				this.destroy(pooled);
+			}
+
+			if (pooled == null) {
+				pooled = this.open();
+			}
+
+			pooled.borrowed();
+			this.borrowed.incrementAndGet();
+			this.active.incrementAndGet();
+			return pooled;
+
+		} catch (SQLException | RuntimeException ex) {
+			this.permits.release();
+			throw ex;
+		}
+	}
+
+	void release(PooledConnection pooled) {
+		this.active.decrementAndGet();
+
+		try {
+			pooled.closeUncachedStatements();
+
+			Connection conn = pooled.getConnection();
+			if (this.closed || conn.isClosed()) {
+				this.destroy(pooled);
+				return;
+			}
+
+			// Throw away whatever the borrower left uncommitted.
+			if (!conn.getAutoCommit()) {
+				conn.rollback();
+				conn.setAutoCommit(true);
+			}
+
+			pooled.last_used = System.nanoTime();
+			this.idle.offerFirst(pooled);
+
+		} catch (SQLException ex) {
+			this.destroy(pooled);
+		} finally {
+			this.permits.release();
+		}
+
+		this.evictIdle();
+	}
+
+	/**
+	 *
+	 * Closes idle connections that have not been used for DatabaseConfig.POOL_IDLE_TIMEOUT_MILLIS.
+	 */
+	public void evictIdle() {
+		PooledConnection oldest;
+		while ((oldest = this.idle.peekLast()) != null && this.isExpired(oldest)) {
+			if (this.idle.removeLastOccurrence(oldest)) {
+				this.destroy(oldest);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * Closes the pool and all idle connections.
+	 */
+	public void close() {
+		this.closed = true;
+
+		PooledConnection pooled;
+		while ((pooled = this.idle.pollFirst()) != null) {
+			this.destroy(pooled);
+		}
+	}
+
+	private PooledConnection open() throws SQLException {
+		Connection conn = this.connect();
+		conn.setAutoCommit(true);
+
+		this.created.incrementAndGet();
+		return new PooledConnection(this, conn, this.statement_cache_size);
+	}
+
+	/**
+	 *
+	 * Opens a connection with the credentials of the pool, which doesn't count against its size.
+	 * For components that must not wait for the pool, like SequenceIdGenerator.
+	 */
+	Connection connect() throws SQLException {
+		return DriverManager.getConnection(this.url, this.username, this.password);
+	}
+
+	void recordStatementHit() {
+		this.statement_hits.incrementAndGet();
+	}
+
+	void recordStatementMiss() {
+		this.statement_misses.incrementAndGet();
+	}
+
+	private boolean isExpired(PooledConnection pooled) {
+		return System.nanoTime() - pooled.last_used > this.idle_timeout_nanos;
+	}
+
+	private boolean isUsable(PooledConnection pooled) {
+		if (this.isExpired(pooled)) {
+			return false;
+		}
+
+		try {
+			if (this.validate_on_borrow) {
+				return pooled.getConnection().isValid(this.validation_timeout_seconds);
+			}
+			return !pooled.getConnection().isClosed();
+		} catch (SQLException ex) {
+			return false;
+		}
+	}
+
+	private void destroy(PooledConnection pooled) {
+		try {
+			pooled.getConnection().close();
+		} catch (SQLException ex) {
+			System.out.println("Error occurred when closing a pooled connection");
+			System.out.println(ex.getMessage());
+		}
+		this.destroyed.incrementAndGet();
+	}
+
+	public String getUrl() {
+		return this.url;
+	}
+
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	public int getMaxSize() {
+		return this.max_size;
+	}
+
+	public int getIdleCount() {
+		return this.idle.size();
+	}
+
+	public long getActiveCount() {
+		return this.active.get();
+	}
+
+	public long getCreatedCount() {
+		return this.created.get();
+	}
+
+	public long getDestroyedCount() {
+		return this.destroyed.get();
+	}
+
+	public long getBorrowCount() {
+		return this.borrowed.get();
+	}
+
+	public long getTimeoutCount() {
+		return this.timeouts.get();
+	}
+
+	public long getTotalWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(this.wait_nanos.get());
+	}
+
+	public long getStatementCacheHits() {
+		return this.statement_hits.get();
+	}
+
+	public long getStatementCacheMisses() {
+		return this.statement_misses.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPool[" + this.url + "] (active: " + this.getActiveCount() + ", idle: " + this.getIdleCount()
+				+ ", created: " + this.getCreatedCount() + ", timeouts: " + this.getTimeoutCount()
+				+ ", statement cache hits: " + this.getStatementCacheHits() + ", misses: " + this.getStatementCacheMisses() + ")";
+	}
+}
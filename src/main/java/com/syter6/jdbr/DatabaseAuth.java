@@ -6,4 +6,7 @@ public class DatabaseAuth {
 	public static String USERNAME = "";
 	public static String PASSWORD = "";
 
+	// URLs of read replicas of URL, using the same username and password. Reads are spread over them.
+	public static String[] REPLICA_URLS = {};
+
 }
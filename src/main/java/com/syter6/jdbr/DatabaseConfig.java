@@ -0,0 +1,44 @@
+package com.syter6.jdbr;
+
+public class DatabaseConfig {
+
+	// Connection pool
+	public static int POOL_MAX_SIZE = 10;
+	public static long POOL_MAX_WAIT_MILLIS = 5000;
+	public static long POOL_IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+	public static boolean POOL_VALIDATE_ON_BORROW = true;
+	public static int POOL_VALIDATION_TIMEOUT_SECONDS = 2;
+
+	// Prepared statements kept per pooled connection. 0 disables the cache.
+	public static int STATEMENT_CACHE_SIZE = 64;
+
+	// Column definitions are cached process-wide. A negative TTL keeps them until they are invalidated.
+	public static long SCHEMA_CACHE_TTL_MILLIS = -1;
+
+	// Rows fetched per round trip by stream(). Ignored by MySQL unless the URL sets useCursorFetch=true.
+	public static int STREAM_FETCH_SIZE = 1000;
+
+	// Read replicas (DatabaseAuth.REPLICA_URLS) are checked this often; unhealthy ones get no reads until they recover.
+	public static long REPLICA_HEALTH_CHECK_MILLIS = 5000;
+
+	// When there are read replicas: after a thread writes, its reads go to the primary for this long,
+	// so it sees its own writes despite replication lag. 0 turns it off.
+	public static long READ_YOUR_WRITES_MILLIS = 1000;
+
+	// Rows sent and committed together by the bulk operations.
+	public static int BATCH_SIZE = 1000;
+
+	// Rows sent per LOAD DATA statement by bulkLoad(). Every chunk is held in memory as CSV while it is sent.
+	public static int BULK_LOAD_CHUNK_SIZE = 100_000;
+
+	// WriteBehindRepository: writers wait when this many records are buffered, and buffered writes are flushed at least this often.
+	public static int WRITE_BEHIND_BUFFER_SIZE = 10_000;
+	public static long WRITE_BEHIND_FLUSH_MILLIS = 100;
+
+	// Receives the timings of every repository operation. Null turns the instrumentation off.
+	public static RepositoryListener LISTENER = RepositoryMetrics.DEFAULT;
+
+	// Operations taking at least this long are reported to the listener as slow queries. 0 or less turns the slow query log off.
+	public static long SLOW_QUERY_MILLIS = 1000;
+
+}
@@ -0,0 +1,267 @@
+package com.syter6.jdbr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ *
+ * A size-bounded cache of entities by primary key, with an optional time to live.
+ * Entities are copied going in and coming out, so callers can't change what is cached by changing their model.
+ * Hits don't take a lock; which entity is evicted when the cache is full is up to its EvictionPolicy.
+ */
+public class EntityCache<T> {
+
+	private static final ConcurrentHashMap<String, EntityCache<?>> shared = new ConcurrentHashMap<>();
+
+	private record Entry<T>(T value, long expires_at) {}
+
+	// Versions of the keys, striped to bound their memory. Bumped on every invalidation,
+	// so a load that raced with a write of its key (or, rarely, of another key in its stripe) isn't cached.
+	private static final int VERSION_STRIPES = 1024;
+
+	private final int max_size;
+	private final long ttl_nanos;
+	private final UnaryOperator<T> copier;
+	private final EvictionPolicy policy;
+
+	private final ConcurrentHashMap<String, Entry<T>> entries = new ConcurrentHashMap<>();
+	private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+	// Bumped by invalidateAll(), which invalidates every stripe at once.
+	private final AtomicLong epoch = new AtomicLong();
+
+	// Metrics
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong load_nanos = new AtomicLong();
+
+	public EntityCache(int max_size, long ttl_millis, UnaryOperator<T> copier) {
+		this(max_size, ttl_millis, copier, new ClockEvictionPolicy());
+	}
+
+	/**
+	 *
+	 * @param max_size		The maximum number of cached entities.
+	 * @param ttl_millis	How long an entity stays cached. 0 or less keeps it until it is evicted or invalidated.
+	 * @param copier		Copies an entity.
+	 * @param policy		Picks the entity to be evicted when the cache is full.
+	 */
+	public EntityCache(int max_size, long ttl_millis, UnaryOperator<T> copier, EvictionPolicy policy) {
+		this.max_size = max_size;
+		this.ttl_nanos = ttl_millis > 0 ? TimeUnit.MILLISECONDS.toNanos(ttl_millis) : 0;
+		this.copier = copier;
+		this.policy = policy;
+	}
+
+	/**
+	 *
+	 * Returns the cache shared by every repository of the same table, creating it on first use.
+	 *
+	 * @param key		Identifies the table, for example the connection URL and table name.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> EntityCache<T> shared(String key, int max_size, long ttl_millis, UnaryOperator<T> copier) {
+		return (EntityCache<T>) shared.computeIfAbsent(key, k -> new EntityCache<>(max_size, ttl_millis, copier));
+	}
+
+	/**
+	 *
+	 * Returns the cached entity, or loads and caches it when it isn't cached.
+	 *
+	 * @param key		The primary key of the entity.
+	 * @param loader	Loads the entity from the database. May return null, which is not cached.
+	 * @return      	A copy of the entity, or null when it doesn't exist.
+	 */
+	public T get(String key, Supplier<T> loader) {
+		T cached = this.lookup(key, System.nanoTime());
+		if (cached != null) {
+			this.hits.incrementAndGet();
+			return cached;
+		}
+
+		this.misses.incrementAndGet();
+		long version = this.version(key);
+
+		long start = System.nanoTime();
+		T value = loader.get();
+		this.load_nanos.addAndGet(System.nanoTime() - start);
+
+		if (value != null) {
+			this.put(key, value, version);
+		}
+
+		return value;
+	}
+
+	/**
+	 *
+	 * Returns the cached entities, and loads the ones that aren't cached with a single call of the loader.
+	 *
+	 * @param keys		The primary keys of the entities.
+	 * @param loader	Loads the missing entities from the database, by primary key. May return null on failure.
+	 * @return      	Copies of the entities that exist, by primary key. Null when the loader failed.
+	 */
+	public Map<String, T> getAll(Collection<String> keys, Function<Collection<String>, Map<String, T>> loader) {
+		Map<String, T> found = new HashMap<>();
+		List<String> missing = new ArrayList<>();
+		Map<String, Long> versions = new HashMap<>();
+
+		long now = System.nanoTime();
+		for (String key : keys) {
+			T cached = this.lookup(key, now);
+			if (cached != null) {
+				found.put(key, cached);
+			} else {
+				missing.add(key);
+				versions.put(key, this.version(key));
+			}
+		}
+
+		this.hits.addAndGet(found.size());
+		if (missing.isEmpty()) {
+			return found;
+		}
+
+		this.misses.addAndGet(missing.size());
+
+		long start = System.nanoTime();
+		Map<String, T> loaded = loader.apply(missing);
+		this.load_nanos.addAndGet(System.nanoTime() - start);
+
+		if (loaded == null) {
+			return null;
+		}
+
+		for (Map.Entry<String, T> entry : loaded.entrySet()) {
+			Long version = versions.get(entry.getKey());
+			if (version != null) {
+				this.put(entry.getKey(), entry.getValue(), version);
+			}
+		}
+
+		found.putAll(loaded);
+		return found;
+	}
+
+	private T lookup(String key, long now) {
+		Entry<T> entry = this.entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+
+		if (entry.expires_at != 0 && now >= entry.expires_at) {
+			if (this.entries.remove(key, entry)) {
+				this.policy.removed(key);
+			}
+			return null;
+		}
+
+		this.policy.accessed(key);
+		return this.copier.apply(entry.value);
+	}
+
+	/**
+	 *
+	 * Caches the value, unless its key has been invalidated since the load started.
+	 */
+	private void put(String key, T value, long version) {
+		long expires_at = this.ttl_nanos == 0 ? 0 : System.nanoTime() + this.ttl_nanos;
+		Entry<T> entry = new Entry<>(this.copier.apply(value), expires_at);
+
+		boolean[] added = new boolean[1];
+		// The version is checked within compute(), so an invalidation either comes first and is seen,
+		// or comes after and removes the entry.
+		this.entries.compute(key, (k, existing) -> {
+			if (this.version(k) != version) {
+				return existing;
+			}
+			added[0] = existing == null;
+			return entry;
+		});
+
+		if (added[0]) {
+			this.policy.added(key);
+			this.evictIfFull();
+		}
+	}
+
+	private void evictIfFull() {
+		while (this.entries.size() > this.max_size) {
+			String victim = this.policy.victim();
+			if (victim == null) {
+				return;
+			}
+			if (this.entries.remove(victim) != null) {
+				this.evictions.incrementAndGet();
+			}
+			this.policy.removed(victim);
+		}
+	}
+
+	private long version(String key) {
+		return this.epoch.get() + this.versions.get(stripe(key));
+	}
+
+	private static int stripe(String key) {
+		int hash = key.hashCode();
+		return (hash ^ (hash >>> 16)) & (VERSION_STRIPES - 1);
+	}
+
+	public void invalidate(String key) {
+		this.versions.incrementAndGet(stripe(key));
+		if (this.entries.remove(key) != null) {
+			this.policy.removed(key);
+		}
+	}
+
+	public void invalidateAll() {
+		this.epoch.incrementAndGet();
+		for (String key : this.entries.keySet()) {
+			if (this.entries.remove(key) != null) {
+				this.policy.removed(key);
+			}
+		}
+	}
+
+	public int size() {
+		return this.entries.size();
+	}
+
+	public long getHitCount() {
+		return this.hits.get();
+	}
+
+	public long getMissCount() {
+		return this.misses.get();
+	}
+
+	public long getEvictionCount() {
+		return this.evictions.get();
+	}
+
+	public double getHitRate() {
+		long requests = this.getHitCount() + this.getMissCount();
+		return requests == 0 ? 0 : (double) this.getHitCount() / requests;
+	}
+
+	public double getAverageLoadMillis() {
+		long misses = this.getMissCount();
+		return misses == 0 ? 0 : this.load_nanos.get() / 1_000_000.0 / misses;
+	}
+
+	@Override
+	public String toString() {
+		return "EntityCache (size: " + this.size() + "/" + this.max_size + ", hit rate: "
+				+ Math.round(this.getHitRate() * 100) + "%, evictions: " + this.getEvictionCount() + ")";
+	}
+}
@@ -0,0 +1,126 @@
+package com.syter6.jdbr;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * Reads and writes the fields of an entity by column index.
+ * The fields are looked up once per (entity class, column list) and accessed through VarHandles,
+ * so there is no reflective lookup per row and primitive fields are written without boxing.
+ */
+public class EntityMapper<T> {
+
+	private static final ConcurrentHashMap<Key, EntityMapper<?>> mappers = new ConcurrentHashMap<>();
+
+	private record Key(Class<?> clazz, List<String> columns) {}
+
+	private final Class<T> clazz;
+	private final VarHandle[] handles;
+	private final Class<?>[] types;
+
+	private EntityMapper(Class<T> clazz, List<ColumnDefinition> columns) {
+		this.clazz = clazz;
+		this.handles = new VarHandle[columns.size()];
+		this.types = new Class<?>[columns.size()];
+
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+
+			for (int i = 0; i < columns.size(); i++) {
+				Field field = clazz.getDeclaredField(columns.get(i).name);
+				this.handles[i] = lookup.unreflectVarHandle(field);
+				this.types[i] = field.getType();
+			}
+		} catch (NoSuchFieldException ex) {
+			throw new IllegalArgumentException(clazz.getSimpleName() + " has no field for column " + ex.getMessage(), ex);
+		} catch (IllegalAccessException ex) {
+			throw new IllegalArgumentException("Cannot access the fields of " + clazz.getSimpleName(), ex);
+		}
+	}
+
+	/**
+	 *
+	 * Returns the mapper for the given class and columns, compiling it on first use.
+	 *
+	 * @param clazz		The entity class. It needs a field named after every column.
+	 * @param columns	The columns, in the order they are indexed by.
+	 * @return      	The shared mapper.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> EntityMapper<T> forClass(Class<T> clazz, List<ColumnDefinition> columns) {
+		List<String> names = new ArrayList<>(columns.size());
+		for (ColumnDefinition column : columns) {
+			names.add(column.name);
+		}
+
+		return (EntityMapper<T>) mappers.computeIfAbsent(new Key(clazz, List.copyOf(names)),
+				key -> new EntityMapper<>(clazz, columns));
+	}
+
+	public Class<T> getEntityClass() {
+		return this.clazz;
+	}
+
+	/**
+	 *
+	 * @return      The declared type of the field mapped to the column.
+	 */
+	public Class<?> getFieldType(int column) {
+		return this.types[column];
+	}
+
+	/**
+	 *
+	 * Copies the value of every mapped field from one entity to another.
+	 */
+	public void copy(T source, T target) {
+		for (VarHandle handle : this.handles) {
+			handle.set(target, handle.get(source));
+		}
+	}
+
+	public Object get(T entity, int column) {
+		return this.handles[column].get(entity);
+	}
+
+	public void set(T entity, int column, Object value) {
+		this.handles[column].set(entity, value);
+	}
+
+	public int getInt(T entity, int column) {
+		return (int) this.handles[column].get(entity);
+	}
+
+	public void setInt(T entity, int column, int value) {
+		this.handles[column].set(entity, value);
+	}
+
+	public long getLong(T entity, int column) {
+		return (long) this.handles[column].get(entity);
+	}
+
+	public void setLong(T entity, int column, long value) {
+		this.handles[column].set(entity, value);
+	}
+
+	public double getDouble(T entity, int column) {
+		return (double) this.handles[column].get(entity);
+	}
+
+	public void setDouble(T entity, int column, double value) {
+		this.handles[column].set(entity, value);
+	}
+
+	public boolean getBoolean(T entity, int column) {
+		return (boolean) this.handles[column].get(entity);
+	}
+
+	public void setBoolean(T entity, int column, boolean value) {
+		this.handles[column].set(entity, value);
+	}
+}
@@ -0,0 +1,21 @@
+package com.syter6.jdbr;
+
+/**
+ *
+ * Decides which entry an EntityCache evicts when it is full.
+ * accessed() is called on every cache hit, from any thread, so it should not block.
+ */
+public interface EvictionPolicy {
+
+	void added(String key);
+
+	void accessed(String key);
+
+	void removed(String key);
+
+	/**
+	 *
+	 * @return      the key to be evicted next, or null when the policy tracks no keys.
+	 */
+	String victim();
+}
@@ -1,16 +1,43 @@
 package com.syter6.jdbr;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface IDataRepository<T> {
 	ArrayList<T> getAll();
 	ArrayList<T> getAll(String query);
+	Stream<T> streamAll();
+	Stream<T> stream(String query);
+	long parallelScan(int partitions, Consumer<? super T> action);
+	Stream<T> parallelStream(int partitions);
 	T getBy(String column, String value);
 	T getById(int primary_key);
 	T getById(String primary_key);
+	<K> Map<K, T> getByIds(Collection<K> primary_keys);
+	Map<Object, T> getAllBy(String column, Collection<String> values);
+	long count();
+	long count(String column, Object value);
+	boolean exists(String column, Object value);
+	double sum(String column);
+	double min(String column);
+	double max(String column);
+	double avg(String column);
 	boolean create(T data);
+	BatchResult createAll(Collection<T> data);
+	BatchResult createAll(Stream<T> data);
+	BatchResult bulkLoad(Stream<T> data);
+	boolean upsert(T data);
+	boolean createIfAbsent(T data);
+	UpsertResult upsertAll(Collection<T> data);
+	UpsertResult createAllIfAbsent(Collection<T> data);
 	boolean updateField(String primary_key, String column, String new_value, ColumnDefinitionType column_type);
 	boolean update(T data);
+	boolean updateChanged(T original, T modified);
+	BatchResult updateAll(Collection<T> data);
 	boolean delete(T data);
+	BatchResult deleteAll(Collection<T> data);
 	boolean truncate();
 }
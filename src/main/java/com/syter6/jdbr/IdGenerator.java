@@ -0,0 +1,34 @@
+package com.syter6.jdbr;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ *
+ * Generates the primary key of records that are created with an int primary key of 0.
+ */
+public interface IdGenerator {
+
+	/**
+	 *
+	 * @param conn		The connection the record is inserted with.
+	 * @return      	The primary key for the new record.
+	 */
+	int nextId(Connection conn) throws SQLException;
+
+	/**
+	 *
+	 * @return      	true when the database generates the key (AUTO_INCREMENT), and nextId() isn't used.
+	 */
+	default boolean isGeneratedByDatabase() {
+		return false;
+	}
+
+	/**
+	 *
+	 * Called when a generated id turned out to be taken, for example by a record inserted by another process.
+	 * Generators that hand out ids from memory start over from the database.
+	 */
+	default void reset() {
+	}
+}
@@ -0,0 +1,124 @@
+package com.syter6.jdbr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ *
+ * Merges lookups by primary key that arrive within a short window into a single query, like a DataLoader.
+ * The first caller of a batch waits for the window to pass and then loads the keys of everyone who joined.
+ * A batch is loaded early once it holds max_batch different keys.
+ */
+class KeyCoalescer<T> {
+
+	private static class Batch<T> {
+		private final Thread leader = Thread.currentThread();
+		private final LinkedHashMap<String, List<CompletableFuture<T>>> waiters = new LinkedHashMap<>();
+		private boolean closed = false;
+	}
+
+	private final Function<Collection<String>, Map<String, T>> loader;
+	private final UnaryOperator<T> copier;
+	private final long window_nanos;
+	private final int max_batch;
+
+	// The batch that new lookups join, guarded by this.
+	private Batch<T> pending;
+
+	/**
+	 *
+	 * @param loader		Loads entities by primary key. May return null on failure.
+	 * @param copier		Copies an entity, for callers that asked for the same key.
+	 * @param window_millis	How long the first caller waits for others to join.
+	 * @param max_batch		The number of keys after which a batch is loaded without waiting.
+	 */
+	KeyCoalescer(Function<Collection<String>, Map<String, T>> loader, UnaryOperator<T> copier, long window_millis, int max_batch) {
+		this.loader = loader;
+		this.copier = copier;
+		this.window_nanos = TimeUnit.MILLISECONDS.toNanos(window_millis);
+		this.max_batch = max_batch;
+	}
+
+	/**
+	 *
+	 * @param key		The primary key of the entity.
+	 * @return      	The entity, or null when it doesn't exist or couldn't be loaded.
+	 */
+	T get(String key) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		Batch<T> batch;
+		boolean leader = false;
+
+		synchronized (this) {
+			if (this.pending == null) {
+				this.pending = new Batch<>();
+				leader = true;
+			}
+
+			batch = this.pending;
+			batch.waiters.computeIfAbsent(key, k -> new ArrayList<>()).add(future);
+
+			if (batch.waiters.size() >= this.max_batch) {
+				this.close(batch);
+				LockSupport.unpark(batch.leader);
+			}
+		}
+
+		if (leader) {
+			this.await(batch);
+			this.load(batch);
+		}
+
+		return future.join();
+	}
+
+	private void close(Batch<T> batch) {
+		batch.closed = true;
+		if (this.pending == batch) {
+			this.pending = null;
+		}
+	}
+
+	private void await(Batch<T> batch) {
+		long deadline = System.nanoTime() + this.window_nanos;
+
+		while (true) {
+			long remaining;
+			synchronized (this) {
+				remaining = deadline - System.nanoTime();
+				if (batch.closed || remaining <= 0 || Thread.currentThread().isInterrupted()) {
+					this.close(batch);
+					return;
+				}
+			}
+			LockSupport.parkNanos(remaining);
+		}
+	}
+
+	private void load(Batch<T> batch) {
+		Map<String, T> found;
+		try {
+			found = this.loader.apply(batch.waiters.keySet());
+		} catch (RuntimeException ex) {
+			batch.waiters.values().forEach(futures -> futures.forEach(future -> future.completeExceptionally(ex)));
+			throw ex;
+		}
+
+		for (Map.Entry<String, List<CompletableFuture<T>>> waiters : batch.waiters.entrySet()) {
+			T model = found == null ? null : found.get(waiters.getKey());
+
+			// Callers asking for the same key each get their own copy.
+			for (int i = 0; i < waiters.getValue().size(); i++) {
+				waiters.getValue().get(i).complete(model == null || i == 0 ? model : this.copier.apply(model));
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.syter6.jdbr;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *
+ * A fixed-size, lock-free histogram of durations, in the style of HdrHistogram.
+ * Every power of two is split into 16 buckets, so recorded values are kept with a precision of about 6%,
+ * from nanoseconds up to centuries. Recording a value is a single atomic increment and doesn't allocate.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	public void record(long nanos) {
+		this.counts.incrementAndGet(index(Math.max(nanos, 0)));
+	}
+
+	static int index(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub_bucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub_bucket;
+	}
+
+	/**
+	 *
+	 * @return      the highest value that ends up in the bucket.
+	 */
+	static long highestValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int shift = index / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += this.counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 *
+	 * @param percentile	The percentile, between 0 and 100.
+	 * @return      		The duration in milliseconds that the given percentage of the recorded values doesn't exceed. 0 when empty.
+	 */
+	public double getPercentileMillis(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = this.counts.get(i);
+			count += snapshot[i];
+		}
+
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return highestValue(i) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+			}
+		}
+
+		return 0;
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.counts.set(i, 0);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("p50 %.3fms, p90 %.3fms, p99 %.3fms, max %.3fms",
+				this.getPercentileMillis(50), this.getPercentileMillis(90), this.getPercentileMillis(99), this.getPercentileMillis(100));
+	}
+}
@@ -0,0 +1,35 @@
+package com.syter6.jdbr;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ *
+ * Evicts the least recently used key. Exact, but every hit takes a lock to move its key to the back,
+ * so under many threads ClockEvictionPolicy scales better.
+ */
+public class LruEvictionPolicy implements EvictionPolicy {
+
+	private final LinkedHashMap<String, Boolean> keys = new LinkedHashMap<>(16, 0.75f, true);
+
+	@Override
+	public synchronized void added(String key) {
+		this.keys.put(key, Boolean.TRUE);
+	}
+
+	@Override
+	public synchronized void accessed(String key) {
+		this.keys.get(key);
+	}
+
+	@Override
+	public synchronized void removed(String key) {
+		this.keys.remove(key);
+	}
+
+	@Override
+	public synchronized String victim() {
+		Iterator<String> eldest = this.keys.keySet().iterator();
+		return eldest.hasNext() ? eldest.next() : null;
+	}
+}
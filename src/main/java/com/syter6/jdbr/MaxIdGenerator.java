@@ -0,0 +1,55 @@
+package com.syter6.jdbr;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ *
+ * Looks up the highest primary key, and hands out a small block of ids after it from memory.
+ * The highest key is looked up again for every block, and after reset(), so records inserted
+ * by other processes or with explicit ids are skipped. Between two lookups they can still collide;
+ * create() then resets the generator and retries once. Use SequenceIdGenerator or AutoIncrementIdGenerator
+ * when several processes insert into the same table at a high rate.
+ */
+public class MaxIdGenerator extends BlockIdGenerator {
+
+	public static final int DEFAULT_BLOCK_SIZE = 16;
+
+	private final String table_name;
+	private final String pk_column;
+	private final int block_size;
+
+	public MaxIdGenerator(String table_name, String pk_column) {
+		this(table_name, pk_column, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 *
+	 * @param table_name	The table to generate ids for.
+	 * @param pk_column		The primary key column.
+	 * @param block_size	The number of ids handed out per lookup of the highest key.
+	 */
+	public MaxIdGenerator(String table_name, String pk_column, int block_size) {
+		this.table_name = table_name;
+		this.pk_column = pk_column;
+		this.block_size = Math.max(1, block_size);
+	}
+
+	@Override
+	protected Block reserve(Connection conn) throws SQLException {
+		String query = "SELECT MAX(" + this.pk_column + ") FROM " + this.table_name;
+
+		try (Statement statement = conn.createStatement();
+			 ResultSet result_set = statement.executeQuery(query)) {
+			result_set.next();
+
+			int biggest_val = result_set.getInt(1);
+
+			// Ids handed out earlier may not have been inserted yet.
+			int first = (int) Math.max(biggest_val + 1L, this.getHandedOut());
+			return new Block(first, (int) Math.min((long) first + this.block_size, Integer.MAX_VALUE));
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package com.syter6.jdbr;
+
+/**
+ *
+ * The repository operations reported to the RepositoryListener.
+ */
+public enum Operation {
+	GET_ALL,
+	GET_BY,
+	CREATE,
+	UPSERT,
+	UPDATE,
+	DELETE,
+	// Reads built with query(): list(), first(), exists(), count() and the other aggregates.
+	QUERY
+}
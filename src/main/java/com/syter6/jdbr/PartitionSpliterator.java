@@ -0,0 +1,88 @@
+package com.syter6.jdbr;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ *
+ * Splits a table scan along primary key ranges, one query per range.
+ * A range is only queried once its rows are needed, and its connection is returned as soon as it has been read.
+ * Rows are pulled from the database as they are consumed, so a slow consumer slows down the scan instead of filling memory.
+ */
+class PartitionSpliterator<T> implements Spliterator<T> {
+
+	private final List<Query<T>> ranges;
+
+	// Streams that are being read, closed with the stream when it is closed early.
+	private final Set<Stream<T>> open;
+
+	private int from;
+	private final int to;
+
+	private Stream<T> current;
+	private Iterator<T> rows;
+
+	PartitionSpliterator(List<Query<T>> ranges, Set<Stream<T>> open) {
+		this(ranges, open, 0, ranges.size());
+	}
+
+	private PartitionSpliterator(List<Query<T>> ranges, Set<Stream<T>> open, int from, int to) {
+		this.ranges = ranges;
+		this.open = open;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		while (true) {
+			if (this.rows == null) {
+				if (this.from >= this.to) {
+					return false;
+				}
+
+				this.current = this.ranges.get(this.from++).streamOrThrow();
+				this.open.add(this.current);
+				this.rows = this.current.iterator();
+			}
+
+			if (this.rows.hasNext()) {
+				action.accept(this.rows.next());
+				return true;
+			}
+
+			this.open.remove(this.current);
+			this.current.close();
+			this.current = null;
+			this.rows = null;
+		}
+	}
+
+	@Override
+	public Spliterator<T> trySplit() {
+		// Ranges that are already being read aren't split.
+		int remaining = this.to - this.from;
+		if (remaining < 2) {
+			return null;
+		}
+
+		int middle = this.from + remaining / 2;
+		PartitionSpliterator<T> prefix = new PartitionSpliterator<>(this.ranges, this.open, this.from, middle);
+		this.from = middle;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public int characteristics() {
+		return Spliterator.NONNULL;
+	}
+}
@@ -0,0 +1,221 @@
+package com.syter6.jdbr;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class PooledConnection implements AutoCloseable {
+
+	private final ConnectionPool pool;
+	private final Connection conn;
+
+	// Prepared statements by SQL, least recently used first.
+	private final LinkedHashMap<String, PreparedStatement> statements;
+	private final int statement_cache_size;
+
+	// Statements prepared while the cache is disabled, closed when the connection is returned.
+	private final List<PreparedStatement> uncached = new ArrayList<>();
+
+	// The transaction this connection is bound to, if any.
+	private Transaction transaction;
+
+	long last_used;
+
+	// Set while the connection is borrowed, so closing it a second time doesn't return it to the pool twice.
+	private final AtomicBoolean borrowed = new AtomicBoolean();
+
+	PooledConnection(ConnectionPool pool, Connection conn, int statement_cache_size) {
+		this.pool = pool;
+		this.conn = conn;
+		this.statement_cache_size = statement_cache_size;
+		this.last_used = System.nanoTime();
+
+		this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() <= PooledConnection.this.statement_cache_size) {
+					return false;
+				}
+
+				closeQuietly(eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	public Connection getConnection() {
+		return this.conn;
+	}
+
+	/**
+	 *
+	 * Returns a prepared statement for the SQL, reusing the one prepared earlier on this connection when it is cached.
+	 * The statement is owned by the connection: callers close its result sets, but never the statement itself.
+	 * Combined with useServerPrepStmts=true in the Connector/J URL, the server parses every statement only once per connection.
+	 *
+	 * @param  sql		the SQL to be prepared.
+	 * @return 			a statement without parameters bound.
+	 */
+	public PreparedStatement prepare(String sql) throws SQLException {
+		return this.prepare(sql, Statement.NO_GENERATED_KEYS);
+	}
+
+	/**
+	 *
+	 * Like prepare(sql), for a statement that returns the keys generated by the database.
+	 *
+	 * @param  sql						the SQL to be prepared.
+	 * @param  auto_generated_keys		Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS.
+	 * @return 							a statement without parameters bound.
+	 */
+	public PreparedStatement prepare(String sql, int auto_generated_keys) throws SQLException {
+		String key = auto_generated_keys == Statement.RETURN_GENERATED_KEYS ? sql + "\0keys" : sql;
+
+		if (this.statement_cache_size <= 0) {
+			PreparedStatement statement = this.conn.prepareStatement(sql, auto_generated_keys);
+			this.uncached.add(statement);
+			this.pool.recordStatementMiss();
+			CancellationScope.register(this, statement);
+			return statement;
+		}
+
+		PreparedStatement statement = this.statements.get(key);
+		if (statement != null && !statement.isClosed()) {
+			this.pool.recordStatementHit();
+			statement.clearParameters();
+			// Rows added by a batch that failed before executeBatch() would otherwise be sent with the next one.
+			statement.clearBatch();
+			CancellationScope.register(this, statement);
+			return statement;
+		}
+
+		this.pool.recordStatementMiss();
+		statement = this.conn.prepareStatement(sql, auto_generated_keys);
+		this.statements.put(key, statement);
+		CancellationScope.register(this, statement);
+		return statement;
+	}
+
+	/**
+	 *
+	 * Prepares a statement outside the statement cache, for statements whose settings are changed, like the fetch size of a stream.
+	 * The caller closes it.
+	 */
+	public PreparedStatement prepareUncached(String sql, int result_set_type, int result_set_concurrency) throws SQLException {
+		PreparedStatement statement = this.conn.prepareStatement(sql, result_set_type, result_set_concurrency);
+		CancellationScope.register(this, statement);
+		return statement;
+	}
+
+	/**
+	 *
+	 * Creates a plain statement. Unlike prepared statements these aren't cached, so the caller closes it.
+	 */
+	public Statement createStatement() throws SQLException {
+		Statement statement = this.conn.createStatement();
+		CancellationScope.register(this, statement);
+		return statement;
+	}
+
+	public Statement createStatement(int result_set_type, int result_set_concurrency) throws SQLException {
+		Statement statement = this.conn.createStatement(result_set_type, result_set_concurrency);
+		CancellationScope.register(this, statement);
+		return statement;
+	}
+
+	/**
+	 *
+	 * @return 			the number of statements in the cache of this connection.
+	 */
+	public int getCachedStatementCount() {
+		return this.statements.size();
+	}
+
+	void closeUncachedStatements() {
+		for (PreparedStatement statement : this.uncached) {
+			closeQuietly(statement);
+		}
+		this.uncached.clear();
+	}
+
+	private static void closeQuietly(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+	}
+
+	/**
+	 *
+	 * Starts a transaction spanning multiple statements.
+	 * The connection goes back to autocommit mode when it is returned to the pool.
+	 * Within a Transaction this does nothing, since the transaction has already started.
+	 */
+	public void begin() throws SQLException {
+		if (this.transaction == null) {
+			this.conn.setAutoCommit(false);
+		}
+	}
+
+	/**
+	 *
+	 * Commits the transaction started with begin().
+	 * Within a Transaction this does nothing; the work is committed when the transaction ends.
+	 */
+	public void commit() throws SQLException {
+		if (this.transaction == null && !this.conn.getAutoCommit()) {
+			this.conn.commit();
+		}
+	}
+
+	/**
+	 *
+	 * Rolls back the transaction started with begin().
+	 * Within a Transaction, the whole transaction is rolled back when it ends.
+	 */
+	public void rollback() throws SQLException {
+		if (this.transaction != null) {
+			this.transaction.setRollbackOnly();
+		} else if (!this.conn.getAutoCommit()) {
+			this.conn.rollback();
+		}
+	}
+
+	/**
+	 *
+	 * @return 			the transaction this connection is bound to, or null.
+	 */
+	public Transaction getTransaction() {
+		return this.transaction;
+	}
+
+	void borrowed() {
+		this.borrowed.set(true);
+	}
+
+	void bind(Transaction transaction) {
+		this.transaction = transaction;
+	}
+
+	/**
+	 *
+	 * Returns the connection to the pool it was borrowed from.
+	 * A connection bound to a Transaction stays with the transaction until it ends.
+	 * Closing it again does nothing.
+	 */
+	@Override
+	public void close() {
+		if (this.transaction != null || !this.borrowed.compareAndSet(true, false)) {
+			return;
+		}
+		CancellationScope.unregister(this);
+		this.pool.release(this);
+	}
+}
@@ -0,0 +1,544 @@
+package com.syter6.jdbr;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ *
+ * A query on the table of a repository, built up with where(), orderBy(), limit() and so on.
+ * Columns are checked against the column definitions of the table, and values are always bound as parameters,
+ * so the compiled SQL only depends on the shape of the query and its statement is reused from the statement cache.
+ *
+ * For deep pages, use keyset pagination instead of offset(): order the query, and pass the last record of a page to after().
+ * The next page then seeks to that record through the index, instead of reading and skipping every record before it.
+ */
+public class Query<T> {
+
+	private static final Set<String> OPERATORS = Set.of("=", "!=", "<>", "<", "<=", ">", ">=", "LIKE", "NOT LIKE");
+
+	private record Predicate(String sql, List<ColumnDefinition> columns, List<Object> values) {}
+
+	private record Order(ColumnDefinition column, int index, boolean descending) {}
+
+	private final BaseRepository<T> repository;
+
+	private final List<ColumnDefinition> projection = new ArrayList<>();
+	private final List<Predicate> predicates = new ArrayList<>();
+	private final List<Order> orders = new ArrayList<>();
+	private Object[] after;
+	private int limit = -1;
+	private int offset = 0;
+
+	Query(BaseRepository<T> repository) {
+		this.repository = repository;
+	}
+
+	/**
+	 *
+	 * Only fetches the given columns. The other fields of the models keep their default values.
+	 *
+	 * @param columns		The columns to be fetched.
+	 */
+	public Query<T> select(String... columns) {
+		for (String column : columns) {
+			this.projection.add(this.column(column));
+		}
+		return this;
+	}
+
+	public Query<T> where(String column, Object value) {
+		return this.where(column, "=", value);
+	}
+
+	/**
+	 *
+	 * Adds a condition, which every record has to match along with the other conditions.
+	 *
+	 * @param column		The column to be compared.
+	 * @param operator		One of =, !=, <>, <, <=, >, >=, LIKE and NOT LIKE.
+	 * @param value			The value to compare with. Use whereNull() to check for NULL.
+	 */
+	public Query<T> where(String column, String operator, Object value) {
+		ColumnDefinition definition = this.column(column);
+		String op = operator.trim().toUpperCase();
+		if (!OPERATORS.contains(op)) {
+			throw new IllegalArgumentException("Unsupported operator: " + operator);
+		}
+
+		this.predicates.add(new Predicate(definition.name + " " + op + " ?", List.of(definition), Arrays.asList(value)));
+		return this;
+	}
+
+	public Query<T> whereIn(String column, Collection<?> values) {
+		ColumnDefinition definition = this.column(column);
+		if (values.isEmpty()) {
+			this.predicates.add(new Predicate("1 = 0", List.of(), List.of()));
+			return this;
+		}
+
+		StringBuilder sql = new StringBuilder(definition.name + " IN (");
+		List<ColumnDefinition> columns = new ArrayList<>();
+		for (int i = 0; i < values.size(); i++) {
+			sql.append(i == 0 ? "?" : ", ?");
+			columns.add(definition);
+		}
+
+		this.predicates.add(new Predicate(sql.append(")").toString(), columns, new ArrayList<>(values)));
+		return this;
+	}
+
+	public Query<T> whereNull(String column) {
+		this.predicates.add(new Predicate(this.column(column).name + " IS NULL", List.of(), List.of()));
+		return this;
+	}
+
+	public Query<T> whereNotNull(String column) {
+		this.predicates.add(new Predicate(this.column(column).name + " IS NOT NULL", List.of(), List.of()));
+		return this;
+	}
+
+	public Query<T> orderBy(String column) {
+		return this.orderBy(column, false);
+	}
+
+	public Query<T> orderByDesc(String column) {
+		return this.orderBy(column, true);
+	}
+
+	private Query<T> orderBy(String column, boolean descending) {
+		ColumnDefinition definition = this.column(column);
+		this.orders.add(new Order(definition, this.repository.columnDefinitions.indexOf(definition), descending));
+		return this;
+	}
+
+	public Query<T> limit(int limit) {
+		this.limit = limit;
+		return this;
+	}
+
+	public Query<T> offset(int offset) {
+		this.offset = offset;
+		return this;
+	}
+
+	/**
+	 *
+	 * Only returns the records after the given one, in the order of the query. Meant for keyset pagination.
+	 * The primary key is added to the order when it isn't in it, so records with equal values aren't skipped.
+	 *
+	 * @param last			The last record of the previous page. Its ordered columns must have been fetched.
+	 */
+	public Query<T> after(T last) {
+		List<Order> orders = this.keysetOrders();
+		Object[] values = new Object[orders.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = this.repository.mapper.get(last, orders.get(i).index);
+		}
+		return this.after(values);
+	}
+
+	/**
+	 *
+	 * Only returns the records after the given values of the ordered columns (followed by the primary key,
+	 * when it isn't ordered on). The ordered columns shouldn't contain NULL.
+	 *
+	 * @param values		The values of the last record of the previous page.
+	 */
+	public Query<T> after(Object... values) {
+		if (values.length != this.keysetOrders().size()) {
+			throw new IllegalArgumentException("Expected " + this.keysetOrders().size() + " keyset values, got " + values.length);
+		}
+
+		this.after = values;
+		return this;
+	}
+
+	/**
+	 *
+	 * @return 			the order of the query, followed by the primary key when it isn't in it.
+	 */
+	private List<Order> keysetOrders() {
+		List<Order> orders = new ArrayList<>(this.orders);
+		if (orders.stream().noneMatch(order -> order.column == this.repository.pk)) {
+			orders.add(new Order(this.repository.pk, 0, false));
+		}
+		return orders;
+	}
+
+	/**
+	 *
+	 * @return      		the models of every record matching the query. Null on failure.
+	 */
+	public ArrayList<T> list() {
+		String sql = this.toSql(this.limit);
+		long start = System.nanoTime(), acquired = 0, executed = 0;
+
+		try (PooledConnection pooled = this.repository.borrowReadConnection()) {
+			acquired = System.nanoTime();
+			PreparedStatement statement = pooled.prepare(sql);
+			this.bind(statement, this.limit);
+
+			try (ResultSet result_set = statement.executeQuery()) {
+				executed = System.nanoTime();
+				ArrayList<T> models = new ArrayList<>();
+				int[] positions = this.positions(result_set);
+
+				while (result_set.next()) {
+					models.add(this.repository.hydrate(result_set, positions));
+				}
+
+				this.repository.record(Operation.QUERY, sql, true, models.size(), 0, start, acquired, executed);
+				return models;
+			}
+
+		} catch (SQLException ex) {
+			System.out.println("===EXCEPTION===\nUsed SQL query (not always the problem):");
+			System.out.println(sql);
+			this.repository.reportError(ex);
+			this.repository.record(Operation.QUERY, sql, false, 0, 0, start, acquired, executed);
+			return null;
+		}
+	}
+
+	/**
+	 *
+	 * @return      		the model of the first record matching the query. Null when there is none, or on failure.
+	 */
+	public T first() {
+		String sql = this.toSql(1);
+		long start = System.nanoTime(), acquired = 0, executed = 0;
+
+		try (PooledConnection pooled = this.repository.borrowReadConnection()) {
+			acquired = System.nanoTime();
+			PreparedStatement statement = pooled.prepare(sql);
+			this.bind(statement, 1);
+
+			try (ResultSet result_set = statement.executeQuery()) {
+				executed = System.nanoTime();
+				T model = result_set.next() ? this.repository.hydrate(result_set, this.positions(result_set)) : null;
+
+				this.repository.record(Operation.QUERY, sql, true, model == null ? 0 : 1, 0, start, acquired, executed);
+				return model;
+			}
+
+		} catch (SQLException ex) {
+			System.out.println("===EXCEPTION===\nUsed SQL query (not always the problem):");
+			System.out.println(sql);
+			this.repository.reportError(ex);
+			this.repository.record(Operation.QUERY, sql, false, 0, 0, start, acquired, executed);
+			return null;
+		}
+	}
+
+	/**
+	 *
+	 * Streams the records matching the query, reading them from the database as the stream is consumed.
+	 * The stream holds a pooled connection and must be closed, preferably with try-with-resources.
+	 * Unlike the other operations, streams aren't reported to DatabaseConfig.LISTENER, since their rows are read
+	 * after this returns, for as long as the caller takes.
+	 */
+	public Stream<T> stream() {
+		try {
+			return this.open();
+		} catch (SQLException ex) {
+			System.out.println("===EXCEPTION===\nUsed SQL query (not always the problem):");
+			System.out.println(this.toSql(this.limit));
+			this.repository.reportError(ex);
+			return Stream.empty();
+		}
+	}
+
+	/**
+	 *
+	 * Like stream(), but a failing query throws an IllegalStateException instead of returning an empty stream,
+	 * the same as a failure while the rows are read. Used where a missing range would go unnoticed otherwise.
+	 */
+	Stream<T> streamOrThrow() {
+		try {
+			return this.open();
+		} catch (SQLException ex) {
+			throw new IllegalStateException(ex.getMessage(), ex);
+		}
+	}
+
+	private Stream<T> open() throws SQLException {
+		String sql = this.toSql(this.limit);
+		PooledConnection pooled = null;
+		PreparedStatement statement = null;
+
+		try {
+			pooled = this.repository.borrowReadConnection();
+
+			// Not taken from the statement cache, since the stream closes it and changes its fetch size.
+			statement = pooled.prepareUncached(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			statement.setFetchSize(this.repository.streamFetchSize(pooled.getConnection()));
+			this.bind(statement, this.limit);
+
+			ResultSet result_set = statement.executeQuery();
+			return this.repository.streamOf(pooled, statement, result_set, this.positions(result_set));
+
+		} catch (SQLException ex) {
+			try {
+				if (statement != null) {
+					statement.close();
+				}
+			} catch (SQLException ignored) {
+			}
+			if (pooled != null) {
+				pooled.close();
+			}
+
+			throw ex;
+		}
+	}
+
+	/**
+	 *
+	 * Counts the records matching the query on the server. Order, limit and offset are ignored.
+	 *
+	 * @return      		the number of matching records. -1 on failure.
+	 */
+	public long count() {
+		Object count = this.aggregate("COUNT(*)");
+		return count == null ? -1 : ((Number) count).longValue();
+	}
+
+	/**
+	 *
+	 * @return      		whether any record matches the query. False on failure.
+	 */
+	public boolean exists() {
+		String sql = "SELECT 1 FROM " + this.repository.table_name + this.whereClause() + " LIMIT 1";
+		long start = System.nanoTime(), acquired = 0, executed = 0;
+
+		try (PooledConnection pooled = this.repository.borrowReadConnection()) {
+			acquired = System.nanoTime();
+			PreparedStatement statement = pooled.prepare(sql);
+			this.bindConditions(statement);
+
+			try (ResultSet result_set = statement.executeQuery()) {
+				executed = System.nanoTime();
+				boolean exists = result_set.next();
+
+				this.repository.record(Operation.QUERY, sql, true, exists ? 1 : 0, 0, start, acquired, executed);
+				return exists;
+			}
+
+		} catch (SQLException ex) {
+			System.out.println("===EXCEPTION===\nUsed SQL query (not always the problem):");
+			System.out.println(sql);
+			this.repository.reportError(ex);
+			this.repository.record(Operation.QUERY, sql, false, 0, 0, start, acquired, executed);
+			return false;
+		}
+	}
+
+	/**
+	 *
+	 * @return      		the sum of the column over the matching records. 0 when there are none, NaN on failure.
+	 */
+	public double sum(String column) {
+		Object sum = this.aggregate("COALESCE(SUM(" + this.column(column).name + "), 0)");
+		return sum == null ? Double.NaN : ((Number) sum).doubleValue();
+	}
+
+	/**
+	 *
+	 * @return      		the smallest value of the column over the matching records. NaN when there are none, or on failure.
+	 */
+	public double min(String column) {
+		return this.numericAggregate("MIN", column);
+	}
+
+	/**
+	 *
+	 * @return      		the largest value of the column over the matching records. NaN when there are none, or on failure.
+	 */
+	public double max(String column) {
+		return this.numericAggregate("MAX", column);
+	}
+
+	/**
+	 *
+	 * @return      		the average of the column over the matching records. NaN when there are none, or on failure.
+	 */
+	public double avg(String column) {
+		return this.numericAggregate("AVG", column);
+	}
+
+	private double numericAggregate(String function, String column) {
+		Object value = this.aggregate(function + "(" + this.column(column).name + ")");
+		return value instanceof Number number ? number.doubleValue() : Double.NaN;
+	}
+
+	/**
+	 *
+	 * Runs a single-row aggregate over the matching records.
+	 *
+	 * @return      		the value of the aggregate. Null when it is NULL, or on failure.
+	 */
+	private Object aggregate(String expression) {
+		String sql = "SELECT " + expression + " FROM " + this.repository.table_name + this.whereClause();
+		long start = System.nanoTime(), acquired = 0, executed = 0;
+
+		try (PooledConnection pooled = this.repository.borrowReadConnection()) {
+			acquired = System.nanoTime();
+			PreparedStatement statement = pooled.prepare(sql);
+			this.bindConditions(statement);
+
+			try (ResultSet result_set = statement.executeQuery()) {
+				executed = System.nanoTime();
+				Object value = result_set.next() ? result_set.getObject(1) : null;
+
+				this.repository.record(Operation.QUERY, sql, true, 1, 0, start, acquired, executed);
+				return value;
+			}
+
+		} catch (SQLException ex) {
+			System.out.println("===EXCEPTION===\nUsed SQL query (not always the problem):");
+			System.out.println(sql);
+			this.repository.reportError(ex);
+			this.repository.record(Operation.QUERY, sql, false, 0, 0, start, acquired, executed);
+			return null;
+		}
+	}
+
+	public String toSql() {
+		return this.toSql(this.limit);
+	}
+
+	private String toSql(int limit) {
+		StringBuilder sql = new StringBuilder("SELECT ");
+		if (this.projection.isEmpty()) {
+			sql.append("*");
+		} else {
+			for (int i = 0; i < this.projection.size(); i++) {
+				sql.append(i == 0 ? "" : ", ").append(this.projection.get(i).name);
+			}
+		}
+		sql.append(" FROM ").append(this.repository.table_name).append(this.whereClause());
+
+		// Ordered queries also order on the primary key, so pages of both offset() and after() are stable.
+		List<Order> orders = this.orders.isEmpty() && this.after == null ? this.orders : this.keysetOrders();
+		for (int i = 0; i < orders.size(); i++) {
+			sql.append(i == 0 ? " ORDER BY " : ", ").append(orders.get(i).column.name).append(orders.get(i).descending ? " DESC" : "");
+		}
+
+		if (limit >= 0) {
+			sql.append(" LIMIT ?");
+		}
+		if (this.offset > 0) {
+			// MySQL has no OFFSET without LIMIT.
+			sql.append(limit >= 0 ? " OFFSET ?" : " LIMIT ? OFFSET ?");
+		}
+
+		return sql.toString();
+	}
+
+	private String whereClause() {
+		List<String> conditions = new ArrayList<>();
+		for (Predicate predicate : this.predicates) {
+			conditions.add(predicate.sql);
+		}
+		if (this.after != null) {
+			conditions.add(this.keysetCondition());
+		}
+
+		return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+	}
+
+	/**
+	 *
+	 * Expands `(a, b) > (?, ?)` into `a > ? OR (a = ? AND b > ?)`, which also works for mixed directions.
+	 */
+	private String keysetCondition() {
+		List<Order> orders = this.keysetOrders();
+		List<String> alternatives = new ArrayList<>();
+
+		for (int i = 0; i < orders.size(); i++) {
+			StringBuilder alternative = new StringBuilder();
+			for (int j = 0; j < i; j++) {
+				alternative.append(orders.get(j).column.name).append(" = ? AND ");
+			}
+			alternative.append(orders.get(i).column.name).append(orders.get(i).descending ? " < ?" : " > ?");
+			alternatives.add("(" + alternative + ")");
+		}
+
+		return "(" + String.join(" OR ", alternatives) + ")";
+	}
+
+	private void bind(PreparedStatement statement, int limit) throws SQLException {
+		int index = this.bindConditions(statement);
+
+		if (limit >= 0) {
+			statement.setInt(index++, limit);
+		}
+		if (this.offset > 0) {
+			if (limit < 0) {
+				statement.setLong(index++, Long.MAX_VALUE);
+			}
+			statement.setInt(index, this.offset);
+		}
+	}
+
+	/**
+	 *
+	 * @return 			the index of the next parameter.
+	 */
+	private int bindConditions(PreparedStatement statement) throws SQLException {
+		int index = 1;
+
+		for (Predicate predicate : this.predicates) {
+			for (int i = 0; i < predicate.values.size(); i++) {
+				this.repository.bindValue(statement, index++, predicate.columns.get(i), predicate.values.get(i));
+			}
+		}
+
+		if (this.after != null) {
+			List<Order> orders = this.keysetOrders();
+			for (int i = 0; i < orders.size(); i++) {
+				for (int j = 0; j <= i; j++) {
+					this.repository.bindValue(statement, index++, orders.get(j).column, this.after[j]);
+				}
+			}
+		}
+
+		return index;
+	}
+
+	/**
+	 *
+	 * @return 			the position of every column in the result set, or 0 when it isn't selected.
+	 */
+	private int[] positions(ResultSet result_set) throws SQLException {
+		if (this.projection.isEmpty()) {
+			return this.repository.columnPositions(result_set);
+		}
+
+		List<ColumnDefinition> columns = this.repository.columnDefinitions;
+		int[] positions = new int[columns.size()];
+
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = this.projection.indexOf(columns.get(i)) + 1;
+		}
+
+		return positions;
+	}
+
+	private ColumnDefinition column(String name) {
+		for (ColumnDefinition column : this.repository.columnDefinitions) {
+			if (column.name.equalsIgnoreCase(name)) {
+				return column;
+			}
+		}
+
+		throw new IllegalArgumentException("Unknown column " + name + " in table " + this.repository.table_name);
+	}
+}
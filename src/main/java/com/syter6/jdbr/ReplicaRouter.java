@@ -0,0 +1,225 @@
+package com.syter6.jdbr;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * Routes reads to read replicas, and everything else to the primary.
+ * A read goes to the healthy replica with the fewest borrowed connections, and to the primary when there is none,
+ * when a Transaction is running on the thread, or within DatabaseConfig.READ_YOUR_WRITES_MILLIS after the thread wrote.
+ * Replicas are checked in the background every DatabaseConfig.REPLICA_HEALTH_CHECK_MILLIS,
+ * and taken out of rotation as soon as connecting to them fails.
+ * A replica whose pool is busy is only skipped: the read goes to the next replica, or to the primary.
+ */
+public class ReplicaRouter {
+
+	private static final ConcurrentHashMap<String, ReplicaRouter> routers = new ConcurrentHashMap<>();
+
+	private static class Replica {
+		private final ConnectionPool pool;
+		private volatile boolean healthy = true;
+
+		private Replica(ConnectionPool pool) {
+			this.pool = pool;
+		}
+	}
+
+	private final ConnectionPool primary;
+	private final List<Replica> replicas = new ArrayList<>();
+
+	// When the current thread last borrowed a connection for writing.
+	private final ThreadLocal<long[]> last_write = ThreadLocal.withInitial(() -> new long[] {Long.MIN_VALUE});
+
+	// Rotates the replica that is tried first, so replicas with equal load take turns.
+	private final AtomicInteger next = new AtomicInteger();
+
+	private final ScheduledExecutorService health_checks;
+
+	/**
+	 *
+	 * @param primary		The pool of the primary, which takes all writes.
+	 * @param replicas		The pools of the read replicas. May be empty.
+	 */
+	public ReplicaRouter(ConnectionPool primary, List<ConnectionPool> replicas) {
+		this.primary = primary;
+		for (ConnectionPool replica : replicas) {
+			this.replicas.add(new Replica(replica));
+		}
+
+		if (this.replicas.isEmpty() || DatabaseConfig.REPLICA_HEALTH_CHECK_MILLIS <= 0) {
+			this.health_checks = null;
+			return;
+		}
+
+		this.health_checks = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "jdbr-replica-health-check");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.health_checks.scheduleWithFixedDelay(this::checkHealth,
+				DatabaseConfig.REPLICA_HEALTH_CHECK_MILLIS, DatabaseConfig.REPLICA_HEALTH_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 *
+	 * Returns the shared router for the primary and replicas in DatabaseAuth.
+	 *
+	 * @return      the router shared by all repositories using the same primary and replicas.
+	 */
+	public static ReplicaRouter getInstance() {
+		ConnectionPool primary = ConnectionPool.getInstance();
+		String key = primary.getUrl() + " " + String.join(" ", DatabaseAuth.REPLICA_URLS);
+
+		ReplicaRouter router = routers.get(key);
+		if (router == null || router.isStale(primary)) {
+			router = routers.compute(key, (k, existing) -> {
+				if (existing != null && !existing.isStale(primary)) {
+					return existing;
+				}
+				if (existing != null) {
+					existing.close();
+				}
+
+				List<ConnectionPool> replicas = new ArrayList<>();
+				for (String url : DatabaseAuth.REPLICA_URLS) {
+					replicas.add(ConnectionPool.getInstance(url, DatabaseAuth.USERNAME, DatabaseAuth.PASSWORD));
+				}
+				return new ReplicaRouter(primary, replicas);
+			});
+		}
+
+		return router;
+	}
+
+	// After ConnectionPool.closeAll() the pools are recreated, and so is the router.
+	private boolean isStale(ConnectionPool primary) {
+		if (this.primary != primary) {
+			return true;
+		}
+		for (Replica replica : this.replicas) {
+			if (replica.pool.isClosed()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public ConnectionPool getPrimary() {
+		return this.primary;
+	}
+
+	/**
+	 *
+	 * Borrows a connection for writing, from the primary. Starts the read-your-writes window of the current thread.
+	 */
+	public PooledConnection borrowForWrite() throws SQLException {
+		if (!this.replicas.isEmpty()) {
+			this.last_write.get()[0] = System.nanoTime();
+		}
+
+		return this.primary.borrow();
+	}
+
+	/**
+	 *
+	 * Borrows a connection for reading from the primary, without starting the read-your-writes window.
+	 * For reads whose results are kept, like loads into the entity cache.
+	 */
+	public PooledConnection borrowFromPrimary() throws SQLException {
+		return this.primary.borrow();
+	}
+
+	/**
+	 *
+	 * Borrows a connection for reading, from a replica when possible.
+	 */
+	public PooledConnection borrowForRead() throws SQLException {
+		if (this.replicas.isEmpty() || Transaction.current() != null || this.withinReadYourWrites()) {
+			return this.primary.borrow();
+		}
+
+		int size = this.replicas.size();
+		int first = Math.floorMod(this.next.getAndIncrement(), size);
+
+		// Least outstanding requests: healthy replicas with the fewest borrowed connections first.
+		// The sort is stable, so replicas with equal load stay in rotation order.
+		List<Replica> candidates = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			Replica replica = this.replicas.get((first + i) % size);
+			if (replica.healthy) {
+				candidates.add(replica);
+			}
+		}
+		candidates.sort(Comparator.comparingLong(replica -> replica.pool.getActiveCount()));
+
+		for (Replica replica : candidates) {
+			try {
+				// Doesn't wait: a busy replica is skipped, and isn't taken out of rotation for it.
+				PooledConnection pooled = replica.pool.tryBorrow();
+				if (pooled != null) {
+					return pooled;
+				}
+			} catch (SQLException ex) {
+				System.out.println("Replica " + replica.pool.getUrl() + " is unavailable, reading elsewhere: " + ex.getMessage());
+				replica.healthy = false;
+			}
+		}
+
+		return this.primary.borrow();
+	}
+
+	private boolean withinReadYourWrites() {
+		long window = DatabaseConfig.READ_YOUR_WRITES_MILLIS;
+		if (window <= 0) {
+			return false;
+		}
+
+		long last = this.last_write.get()[0];
+		return last != Long.MIN_VALUE && System.nanoTime() - last < TimeUnit.MILLISECONDS.toNanos(window);
+	}
+
+	/**
+	 *
+	 * Checks every replica with a connection validation, and puts recovered replicas back in rotation.
+	 * Uses a connection outside the pool, so a replica whose pool is merely busy isn't mistaken for a failing one.
+	 */
+	public void checkHealth() {
+		for (Replica replica : this.replicas) {
+			try (Connection conn = replica.pool.connect()) {
+				replica.healthy = conn.isValid(DatabaseConfig.POOL_VALIDATION_TIMEOUT_SECONDS);
+			} catch (SQLException ex) {
+				replica.healthy = false;
+			}
+		}
+	}
+
+	public List<ConnectionPool> getHealthyReplicas() {
+		List<ConnectionPool> healthy = new ArrayList<>();
+		for (Replica replica : this.replicas) {
+			if (replica.healthy) {
+				healthy.add(replica.pool);
+			}
+		}
+		return Collections.unmodifiableList(healthy);
+	}
+
+	/**
+	 *
+	 * Stops the health checks. The pools themselves are closed with ConnectionPool.closeAll().
+	 */
+	public void close() {
+		if (this.health_checks != null) {
+			this.health_checks.shutdownNow();
+		}
+	}
+}
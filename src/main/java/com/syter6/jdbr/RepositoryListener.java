@@ -0,0 +1,33 @@
+package com.syter6.jdbr;
+
+/**
+ *
+ * Receives the timings of every repository operation that goes to the database. Set it with DatabaseConfig.LISTENER.
+ * The arguments are primitives, so reporting an operation doesn't allocate; implementations are called
+ * on the thread of the operation and should be just as cheap. RepositoryMetrics is the default implementation.
+ */
+public interface RepositoryListener {
+
+	/**
+	 *
+	 * @param table				The table of the repository.
+	 * @param operation			The operation that completed.
+	 * @param success			Whether the operation succeeded.
+	 * @param rows				The number of rows fetched or changed.
+	 * @param bytes_bound		The estimated size of the parameters that were bound.
+	 * @param acquire_nanos		The time spent borrowing a connection.
+	 * @param execute_nanos		The time spent binding and executing the statement.
+	 * @param hydrate_nanos		The time spent reading the results into models.
+	 */
+	void operationCompleted(String table, Operation operation, boolean success, int rows, long bytes_bound,
+							long acquire_nanos, long execute_nanos, long hydrate_nanos);
+
+	/**
+	 *
+	 * Called after operationCompleted() for operations that took at least DatabaseConfig.SLOW_QUERY_MILLIS.
+	 *
+	 * @param sql				The query of the operation.
+	 */
+	default void slowQuery(String table, Operation operation, String sql, long acquire_nanos, long execute_nanos, long hydrate_nanos) {
+	}
+}
@@ -0,0 +1,151 @@
+package com.syter6.jdbr;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * The default RepositoryListener: counters and a latency histogram per table and operation,
+ * and a slow query log, written as warnings to the System.Logger named com.syter6.jdbr.RepositoryMetrics.
+ * Recording an operation only touches LongAdders and the histogram, so it doesn't allocate once a table has been seen.
+ */
+public class RepositoryMetrics implements RepositoryListener {
+
+	/**
+	 *
+	 * The metrics of one operation on one table.
+	 */
+	public static class OperationMetrics {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder rows = new LongAdder();
+		private final LongAdder bytes_bound = new LongAdder();
+		private final LongAdder acquire_nanos = new LongAdder();
+		private final LongAdder execute_nanos = new LongAdder();
+		private final LongAdder hydrate_nanos = new LongAdder();
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		public long getCount() {
+			return this.count.sum();
+		}
+
+		public long getErrorCount() {
+			return this.errors.sum();
+		}
+
+		public long getRows() {
+			return this.rows.sum();
+		}
+
+		public long getBytesBound() {
+			return this.bytes_bound.sum();
+		}
+
+		public double getAverageAcquireMillis() {
+			return this.average(this.acquire_nanos);
+		}
+
+		public double getAverageExecuteMillis() {
+			return this.average(this.execute_nanos);
+		}
+
+		public double getAverageHydrateMillis() {
+			return this.average(this.hydrate_nanos);
+		}
+
+		public LatencyHistogram getLatency() {
+			return this.latency;
+		}
+
+		private double average(LongAdder nanos) {
+			long count = this.getCount();
+			return count == 0 ? 0 : nanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1) / count;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d calls (%d failed), %d rows, %d bytes bound, avg acquire %.3fms / execute %.3fms / hydrate %.3fms, %s",
+					this.getCount(), this.getErrorCount(), this.getRows(), this.getBytesBound(),
+					this.getAverageAcquireMillis(), this.getAverageExecuteMillis(), this.getAverageHydrateMillis(), this.latency);
+		}
+	}
+
+	public static final RepositoryMetrics DEFAULT = new RepositoryMetrics();
+
+	private static final Logger LOGGER = System.getLogger(RepositoryMetrics.class.getName());
+
+	// Per table, the metrics of every operation, by ordinal.
+	private final ConcurrentHashMap<String, OperationMetrics[]> tables = new ConcurrentHashMap<>();
+
+	@Override
+	public void operationCompleted(String table, Operation operation, boolean success, int rows, long bytes_bound,
+								   long acquire_nanos, long execute_nanos, long hydrate_nanos) {
+		OperationMetrics metrics = this.get(table, operation);
+
+		metrics.count.increment();
+		if (!success) {
+			metrics.errors.increment();
+		}
+		metrics.rows.add(rows);
+		metrics.bytes_bound.add(bytes_bound);
+		metrics.acquire_nanos.add(acquire_nanos);
+		metrics.execute_nanos.add(execute_nanos);
+		metrics.hydrate_nanos.add(hydrate_nanos);
+		metrics.latency.record(acquire_nanos + execute_nanos + hydrate_nanos);
+	}
+
+	@Override
+	public void slowQuery(String table, Operation operation, String sql, long acquire_nanos, long execute_nanos, long hydrate_nanos) {
+		if (!LOGGER.isLoggable(Level.WARNING)) {
+			return;
+		}
+
+		LOGGER.log(Level.WARNING, String.format("Slow query: %.1fms on table [%s] (%s): acquire %.1fms, execute %.1fms, hydrate %.1fms%n%s",
+				(acquire_nanos + execute_nanos + hydrate_nanos) / 1_000_000.0, table, operation,
+				acquire_nanos / 1_000_000.0, execute_nanos / 1_000_000.0, hydrate_nanos / 1_000_000.0, sql));
+	}
+
+	/**
+	 *
+	 * @return      the metrics of the operation on the table, which keep being updated.
+	 */
+	public OperationMetrics get(String table, Operation operation) {
+		OperationMetrics[] operations = this.tables.get(table);
+		if (operations == null) {
+			operations = this.tables.computeIfAbsent(table, key -> {
+				OperationMetrics[] created = new OperationMetrics[Operation.values().length];
+				for (int i = 0; i < created.length; i++) {
+					created[i] = new OperationMetrics();
+				}
+				return created;
+			});
+		}
+
+		return operations[operation.ordinal()];
+	}
+
+	public void reset() {
+		this.tables.clear();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder("Repository metrics");
+
+		for (Map.Entry<String, OperationMetrics[]> table : new TreeMap<>(this.tables).entrySet()) {
+			for (Operation operation : Operation.values()) {
+				OperationMetrics metrics = table.getValue()[operation.ordinal()];
+				if (metrics.getCount() > 0) {
+					report.append("\n[").append(table.getKey()).append("] ").append(operation).append(": ").append(metrics);
+				}
+			}
+		}
+
+		return report.toString();
+	}
+}
@@ -0,0 +1,165 @@
+package com.syter6.jdbr;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Process-wide cache of the column definitions of every table, keyed by connection URL and table name.
+ * Repositories share the cached definitions, so `SHOW COLUMNS` runs once per table instead of once per repository.
+ */
+public class SchemaCache {
+
+	private static final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	// The columns are loaded once into the future; concurrent callers for the same table wait for it.
+	private record Entry(CompletableFuture<List<ColumnDefinition>> columns, long loaded_at) {}
+
+	/**
+	 *
+	 * Returns the column definitions of the table, loading them on first use
+	 * or when they are older than DatabaseConfig.SCHEMA_CACHE_TTL_MILLIS.
+	 *
+	 * @param pool			The pool used to load the definitions when they are not cached.
+	 * @param table_name	The table to get the column definitions of.
+	 * @return      		An unmodifiable list of the columns, in table order. The first column is the primary key.
+	 */
+	public static List<ColumnDefinition> get(ConnectionPool pool, String table_name) throws SQLException {
+		String key = key(pool.getUrl(), table_name);
+
+		while (true) {
+			Entry entry = entries.get(key);
+			if (entry != null && !isExpired(entry)) {
+				return join(entry);
+			}
+
+			// The load runs outside the map, so it doesn't block loads of other tables.
+			Entry loading = new Entry(new CompletableFuture<>(), System.nanoTime());
+			boolean claimed = entry == null ? entries.putIfAbsent(key, loading) == null : entries.replace(key, entry, loading);
+			if (!claimed) {
+				continue;
+			}
+
+			try {
+				List<ColumnDefinition> columns = load(pool, table_name);
+				loading.columns.complete(columns);
+				return columns;
+			} catch (SQLException | RuntimeException ex) {
+				entries.remove(key, loading);
+				loading.columns.completeExceptionally(ex);
+				throw ex;
+			}
+		}
+	}
+
+	private static List<ColumnDefinition> join(Entry entry) throws SQLException {
+		try {
+			return entry.columns.join();
+		} catch (CompletionException ex) {
+			if (ex.getCause() instanceof SQLException cause) {
+				throw cause;
+			}
+			if (ex.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 *
+	 * Loads the columns of every table in the current schema with a single `information_schema` query.
+	 *
+	 * @param pool		The pool of the database to preload.
+	 * @return      	The number of tables that were cached.
+	 */
+	public static int preload(ConnectionPool pool) throws SQLException {
+		String query = "SELECT * FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = SCHEMA() ORDER BY TABLE_NAME, ORDINAL_POSITION";
+
+		Map<String, List<ColumnDefinition>> tables = new HashMap<>();
+
+		try (PooledConnection pooled = pool.borrow();
+			 Statement statement = pooled.getConnection().createStatement();
+			 ResultSet result_set = statement.executeQuery(query)) {
+
+			// COLUMN_TYPE is the full type, like `SHOW COLUMNS` returns it (`int unsigned`, `bit(8)`).
+			// Databases without it, like H2, only have DATA_TYPE.
+			String type_column = hasColumn(result_set, "COLUMN_TYPE") ? "COLUMN_TYPE" : "DATA_TYPE";
+
+			while (result_set.next()) {
+				tables.computeIfAbsent(result_set.getString("TABLE_NAME"), k -> new ArrayList<>()).add(new ColumnDefinition(
+						result_set.getString("COLUMN_NAME"),
+						ColumnDefinition.typeFrom(result_set.getString(type_column))));
+			}
+		}
+
+		long now = System.nanoTime();
+		for (Map.Entry<String, List<ColumnDefinition>> table : tables.entrySet()) {
+			entries.put(key(pool.getUrl(), table.getKey()),
+					new Entry(CompletableFuture.completedFuture(Collections.unmodifiableList(table.getValue())), now));
+		}
+
+		return tables.size();
+	}
+
+	/**
+	 *
+	 * Forgets the cached definitions of a table, for example after an `ALTER TABLE`.
+	 */
+	public static void invalidate(String url, String table_name) {
+		entries.remove(key(url, table_name));
+	}
+
+	public static void invalidateAll() {
+		entries.clear();
+	}
+
+	private static List<ColumnDefinition> load(ConnectionPool pool, String table_name) throws SQLException {
+		String query = "SHOW COLUMNS FROM " + table_name;
+
+		List<ColumnDefinition> columnDefinitions = new ArrayList<>();
+
+		try (PooledConnection pooled = pool.borrow();
+			 Statement statement = pooled.getConnection().createStatement();
+			 ResultSet result_set = statement.executeQuery(query)) {
+
+			while (result_set.next()) {
+				columnDefinitions.add(new ColumnDefinition(
+						result_set.getString("field"),
+						ColumnDefinition.typeFrom(result_set.getString("type"))));
+			}
+		}
+
+		return Collections.unmodifiableList(columnDefinitions);
+	}
+
+	private static boolean isExpired(Entry entry) {
+		long ttl = DatabaseConfig.SCHEMA_CACHE_TTL_MILLIS;
+		return ttl >= 0 && System.nanoTime() - entry.loaded_at > TimeUnit.MILLISECONDS.toNanos(ttl);
+	}
+
+	private static String key(String url, String table_name) {
+		return url + "/" + table_name;
+	}
+
+	private static boolean hasColumn(ResultSet result_set, String column) throws SQLException {
+		ResultSetMetaData meta_data = result_set.getMetaData();
+		for (int i = 1; i <= meta_data.getColumnCount(); i++) {
+			if (meta_data.getColumnLabel(i).equalsIgnoreCase(column)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,135 @@
+package com.syter6.jdbr;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ *
+ * Reserves blocks of ids in a sequence table, so processes inserting into the same table never hand out the same id.
+ * A block is reserved in its own short transaction, on a dedicated connection outside the pool,
+ * so reserving a block never waits for the connection the insert itself is holding.
+ */
+public class SequenceIdGenerator extends BlockIdGenerator implements AutoCloseable {
+
+	public static final String SEQUENCE_TABLE = "jdbr_sequences";
+
+	private final ConnectionPool pool;
+	private final String table_name;
+	private final String pk_column;
+	private final int block_size;
+
+	private Connection conn;
+
+	/**
+	 *
+	 * @param pool			The pool to reserve blocks with.
+	 * @param table_name	The table to generate ids for. Also the name of the sequence.
+	 * @param pk_column		The primary key column, used to start the sequence after the highest existing id.
+	 * @param block_size	The number of ids reserved per round trip.
+	 */
+	public SequenceIdGenerator(ConnectionPool pool, String table_name, String pk_column, int block_size) {
+		this.pool = pool;
+		this.table_name = table_name;
+		this.pk_column = pk_column;
+		this.block_size = block_size;
+
+		try {
+			Connection conn = this.connection();
+			try (Statement statement = conn.createStatement()) {
+				statement.execute("CREATE TABLE IF NOT EXISTS " + SEQUENCE_TABLE
+						+ " (name VARCHAR(64) PRIMARY KEY, next_id INT NOT NULL)");
+			}
+			conn.commit();
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+	}
+
+	/**
+	 *
+	 * Only called from the synchronized BlockIdGenerator.nextId(), so the connection is never shared.
+	 */
+	@Override
+	protected Block reserve(Connection ignored) throws SQLException {
+		Connection conn = this.connection();
+
+		try {
+			int first = this.lockSequence(conn);
+			if (first == 0) {
+				first = this.startSequence(conn);
+			}
+
+			try (PreparedStatement statement = conn.prepareStatement(
+					"UPDATE " + SEQUENCE_TABLE + " SET next_id = ? WHERE name = ?")) {
+				statement.setInt(1, first + this.block_size);
+				statement.setString(2, this.table_name);
+				statement.executeUpdate();
+			}
+
+			conn.commit();
+			return new Block(first, first + this.block_size);
+		} catch (SQLException ex) {
+			conn.rollback();
+			throw ex;
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (this.conn == null) {
+			return;
+		}
+
+		try {
+			this.conn.close();
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+		this.conn = null;
+	}
+
+	private synchronized Connection connection() throws SQLException {
+		if (this.conn == null || this.conn.isClosed()) {
+			this.conn = this.pool.connect();
+			this.conn.setAutoCommit(false);
+		}
+
+		return this.conn;
+	}
+
+	private int lockSequence(Connection conn) throws SQLException {
+		try (PreparedStatement statement = conn.prepareStatement(
+				"SELECT next_id FROM " + SEQUENCE_TABLE + " WHERE name = ? FOR UPDATE")) {
+			statement.setString(1, this.table_name);
+
+			try (ResultSet result_set = statement.executeQuery()) {
+				return result_set.next() ? result_set.getInt(1) : 0;
+			}
+		}
+	}
+
+	private int startSequence(Connection conn) throws SQLException {
+		int first;
+		try (Statement statement = conn.createStatement();
+			 ResultSet result_set = statement.executeQuery("SELECT MAX(" + this.pk_column + ") FROM " + this.table_name)) {
+			result_set.next();
+			first = result_set.getInt(1) + 1;
+		}
+
+		try (PreparedStatement statement = conn.prepareStatement(
+				"INSERT INTO " + SEQUENCE_TABLE + " (name, next_id) VALUES (?, ?)")) {
+			statement.setString(1, this.table_name);
+			statement.setInt(2, first);
+			statement.executeUpdate();
+		} catch (SQLException ex) {
+			// Another process started the sequence first.
+			conn.rollback();
+			return this.lockSequence(conn);
+		}
+
+		return first;
+	}
+}
@@ -0,0 +1,250 @@
+package com.syter6.jdbr;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * A unit of work spanning several operations, possibly on several repositories.
+ * While the body runs, every repository using the same pool on this thread shares one connection,
+ * and nothing is committed until the body has finished:
+ *
+ * <pre>
+ * Transaction.inTransaction(tx -> {
+ *     users.create(user);
+ *     products.update(product);
+ * });
+ * </pre>
+ *
+ * The transaction is rolled back when the body throws, calls setRollbackOnly(), or when any repository operation fails.
+ */
+public class Transaction {
+
+	public interface Body {
+		void run(Transaction tx) throws SQLException;
+	}
+
+	private static final ThreadLocal<Transaction> current = new ThreadLocal<>();
+
+	private final ConnectionPool pool;
+	private final PooledConnection pooled;
+	private final boolean read_only;
+
+	private boolean rollback_only = false;
+	private final List<Runnable> after_completion = new ArrayList<>();
+
+	private Transaction(ConnectionPool pool, PooledConnection pooled, boolean read_only) {
+		this.pool = pool;
+		this.pooled = pooled;
+		this.read_only = read_only;
+	}
+
+	/**
+	 *
+	 * Runs the body in a transaction on the pool of DatabaseAuth, and commits it when everything succeeded.
+	 * When a transaction is already running on this thread, the body joins it instead.
+	 *
+	 * @param body		The operations to be done in the transaction.
+	 * @return      	a boolean, indicating whether the transaction has been committed.
+	 */
+	public static boolean inTransaction(Body body) {
+		return run(ConnectionPool.getInstance(), false, body);
+	}
+
+	/**
+	 *
+	 * Like inTransaction(body), but the database refuses writes, and can skip the bookkeeping needed for them.
+	 */
+	public static boolean inReadOnlyTransaction(Body body) {
+		return run(ConnectionPool.getInstance(), true, body);
+	}
+
+	public static boolean inTransaction(ConnectionPool pool, boolean read_only, Body body) {
+		return run(pool, read_only, body);
+	}
+
+	/**
+	 *
+	 * @return      the transaction running on this thread, or null.
+	 */
+	public static Transaction current() {
+		return current.get();
+	}
+
+	private static boolean run(ConnectionPool pool, boolean read_only, Body body) {
+		Transaction outer = current.get();
+		if (outer != null) {
+			return outer.join(body);
+		}
+
+		Transaction tx;
+		try {
+			PooledConnection pooled = pool.borrowOutsideTransaction();
+			tx = new Transaction(pool, pooled, read_only);
+			tx.begin();
+		} catch (SQLException ex) {
+			System.out.println("Could not start a transaction");
+			System.out.println(ex.getMessage());
+			return false;
+		}
+
+		current.set(tx);
+		try {
+			body.run(tx);
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+			tx.rollback_only = true;
+		} catch (RuntimeException | Error ex) {
+			tx.rollback_only = true;
+			throw ex;
+		} finally {
+			current.remove();
+
+			if (!tx.rollback_only) {
+				tx.rollback_only = !tx.commit();
+			}
+			if (tx.rollback_only) {
+				tx.rollback();
+			}
+			tx.end();
+		}
+
+		return !tx.rollback_only;
+	}
+
+	private boolean join(Body body) {
+		try {
+			body.run(this);
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+			this.rollback_only = true;
+		} catch (RuntimeException | Error ex) {
+			this.rollback_only = true;
+			throw ex;
+		}
+
+		return !this.rollback_only;
+	}
+
+	/**
+	 *
+	 * Runs the body within a savepoint. When the body fails, only its own work is rolled back,
+	 * and the rest of the transaction can still be committed.
+	 *
+	 * @param body		The operations to be done.
+	 * @return      	a boolean, indicating whether the body succeeded.
+	 */
+	public boolean savepoint(Body body) throws SQLException {
+		boolean was_rollback_only = this.rollback_only;
+		Savepoint savepoint = this.pooled.getConnection().setSavepoint();
+
+		boolean failed;
+		try {
+			body.run(this);
+			failed = this.rollback_only && !was_rollback_only;
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+			failed = true;
+		} catch (RuntimeException ex) {
+			this.pooled.getConnection().rollback(savepoint);
+			this.rollback_only = was_rollback_only;
+			throw ex;
+		}
+
+		if (failed) {
+			this.pooled.getConnection().rollback(savepoint);
+			this.rollback_only = was_rollback_only;
+			return false;
+		}
+
+		this.pooled.getConnection().releaseSavepoint(savepoint);
+		return true;
+	}
+
+	public Savepoint setSavepoint(String name) throws SQLException {
+		return this.pooled.getConnection().setSavepoint(name);
+	}
+
+	public void rollbackTo(Savepoint savepoint) throws SQLException {
+		this.pooled.getConnection().rollback(savepoint);
+	}
+
+	/**
+	 *
+	 * Makes sure the transaction is rolled back instead of committed when the body finishes.
+	 */
+	public void setRollbackOnly() {
+		this.rollback_only = true;
+	}
+
+	public boolean isRollbackOnly() {
+		return this.rollback_only;
+	}
+
+	public boolean isReadOnly() {
+		return this.read_only;
+	}
+
+	/**
+	 *
+	 * Runs the action once the transaction has been committed or rolled back.
+	 */
+	public void afterCompletion(Runnable action) {
+		this.after_completion.add(action);
+	}
+
+	ConnectionPool getPool() {
+		return this.pool;
+	}
+
+	PooledConnection getPooledConnection() {
+		return this.pooled;
+	}
+
+	private void begin() throws SQLException {
+		Connection conn = this.pooled.getConnection();
+		if (this.read_only) {
+			conn.setReadOnly(true);
+		}
+		conn.setAutoCommit(false);
+		this.pooled.bind(this);
+	}
+
+	private boolean commit() {
+		try {
+			this.pooled.getConnection().commit();
+			return true;
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+			return false;
+		}
+	}
+
+	private void rollback() {
+		try {
+			this.pooled.getConnection().rollback();
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+	}
+
+	private void end() {
+		this.pooled.bind(null);
+
+		try {
+			if (this.read_only) {
+				this.pooled.getConnection().setReadOnly(false);
+			}
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+		this.pooled.close();
+
+		for (Runnable action : this.after_completion) {
+			action.run();
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.syter6.jdbr;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ *
+ * Converts between a Java type and a column, with the JDBC setter and getter of that type.
+ * Register codecs for your own types with TypeCodecs.register(), before the repositories using them are created.
+ */
+public interface TypeCodec<V> {
+
+	/**
+	 *
+	 * @param  statement	the statement to bind the value to.
+	 * @param  index		the 1-based parameter index.
+	 * @param  value		the value to be bound. Never null; nulls are bound with setNull(index, sqlType()).
+	 */
+	void bind(PreparedStatement statement, int index, V value) throws SQLException;
+
+	/**
+	 *
+	 * @param  result_set	the result set, positioned on the row to be read.
+	 * @param  position		the 1-based position of the column.
+	 * @return      		the value of the column, or null when it is SQL NULL.
+	 */
+	V read(ResultSet result_set, int position) throws SQLException;
+
+	/**
+	 *
+	 * @return      		the java.sql.Types constant used to bind null.
+	 */
+	int sqlType();
+
+	/**
+	 *
+	 * Converts the text form of a value, as passed to updateField() and generate().
+	 * Codecs without a text form throw, rather than leaving the field unset.
+	 *
+	 * @param  text			the value as text. Never null.
+	 * @return      		the value.
+	 */
+	default V parse(String text) {
+		throw new UnsupportedOperationException(this.getClass().getName() + " has no text form; it can't parse \"" + text + "\"");
+	}
+
+	/**
+	 *
+	 * @return      		the value inserted for a model without one. Null inserts NULL.
+	 */
+	default V empty() {
+		return null;
+	}
+}
@@ -0,0 +1,271 @@
+package com.syter6.jdbr;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ *
+ * The codecs used to bind and read every column, picked by the type of the field it is mapped to.
+ * Built in are String, int, long, double, float, boolean (primitive and boxed), BigDecimal, LocalDate, LocalDateTime,
+ * Instant, UUID (as BINARY(16) in binary columns, as text otherwise), byte[] and enums (by name).
+ * Other types are bound with setObject() and read with getObject(position, type), and have no text form.
+ * Models without a value insert the empty value of the codec: 0, false, today, or NULL for binary values, UUIDs and enums.
+ */
+public final class TypeCodecs {
+
+	private static final Map<Class<?>, TypeCodec<?>> registered = new ConcurrentHashMap<>();
+	private static final Map<Class<?>, TypeCodec<?>> enums = new ConcurrentHashMap<>();
+	private static final Map<Class<?>, TypeCodec<?>> objects = new ConcurrentHashMap<>();
+
+	// A missing string is inserted as the text null, as it always has been (ColumnDefinition.getEmptyValue()).
+	public static final TypeCodec<String> STRING = codec(Types.VARCHAR,
+			PreparedStatement::setString, ResultSet::getString,
+			text -> text, () -> "null");
+
+	public static final TypeCodec<Integer> INTEGER = codec(Types.INTEGER,
+			PreparedStatement::setInt, (result_set, position) -> {
+				int value = result_set.getInt(position);
+				return result_set.wasNull() ? null : value;
+			},
+			Integer::valueOf, () -> 0);
+
+	public static final TypeCodec<Long> LONG = codec(Types.BIGINT,
+			PreparedStatement::setLong, (result_set, position) -> {
+				long value = result_set.getLong(position);
+				return result_set.wasNull() ? null : value;
+			},
+			Long::valueOf, () -> 0L);
+
+	public static final TypeCodec<Double> DOUBLE = codec(Types.DOUBLE,
+			PreparedStatement::setDouble, (result_set, position) -> {
+				double value = result_set.getDouble(position);
+				return result_set.wasNull() ? null : value;
+			},
+			Double::valueOf, () -> 0.0);
+
+	public static final TypeCodec<Float> FLOAT = codec(Types.REAL,
+			PreparedStatement::setFloat, (result_set, position) -> {
+				float value = result_set.getFloat(position);
+				return result_set.wasNull() ? null : value;
+			},
+			Float::valueOf, () -> 0f);
+
+	public static final TypeCodec<Boolean> BOOLEAN = codec(Types.BOOLEAN,
+			PreparedStatement::setBoolean, (result_set, position) -> {
+				boolean value = result_set.getBoolean(position);
+				return result_set.wasNull() ? null : value;
+			},
+			text -> text.equals("1") || text.equalsIgnoreCase("true"), () -> false);
+
+	public static final TypeCodec<BigDecimal> BIG_DECIMAL = codec(Types.DECIMAL,
+			PreparedStatement::setBigDecimal, ResultSet::getBigDecimal,
+			BigDecimal::new, () -> BigDecimal.ZERO);
+
+	public static final TypeCodec<LocalDate> LOCAL_DATE = codec(Types.DATE,
+			PreparedStatement::setObject, (result_set, position) -> result_set.getObject(position, LocalDate.class),
+			text -> parseDateTime(text).toLocalDate(), LocalDate::now);
+
+	public static final TypeCodec<LocalDateTime> LOCAL_DATE_TIME = codec(Types.TIMESTAMP,
+			PreparedStatement::setObject, (result_set, position) -> result_set.getObject(position, LocalDateTime.class),
+			TypeCodecs::parseDateTime, () -> LocalDate.now().atStartOfDay());
+
+	// Through Timestamp, which both drivers support for every kind of datetime column. Uses the time zone of the JVM.
+	public static final TypeCodec<Instant> INSTANT = codec(Types.TIMESTAMP,
+			(statement, index, value) -> statement.setTimestamp(index, Timestamp.from(value)),
+			(result_set, position) -> {
+				Timestamp value = result_set.getTimestamp(position);
+				return value == null ? null : value.toInstant();
+			},
+			text -> text.endsWith("Z") ? Instant.parse(text) : Timestamp.valueOf(parseDateTime(text)).toInstant(),
+			() -> Timestamp.valueOf(LocalDate.now().atStartOfDay()).toInstant());
+
+	// As text, in hexadecimal.
+	public static final TypeCodec<byte[]> BYTES = codec(Types.VARBINARY,
+			PreparedStatement::setBytes, ResultSet::getBytes,
+			text -> HexFormat.of().parseHex(text), () -> null);
+
+	// 16 bytes, most significant first, so binary ordering matches UUID ordering for time-based UUIDs.
+	public static final TypeCodec<UUID> UUID_BINARY = codec(Types.BINARY,
+			(statement, index, value) -> statement.setBytes(index, ByteBuffer.allocate(16)
+					.putLong(value.getMostSignificantBits())
+					.putLong(value.getLeastSignificantBits())
+					.array()),
+			(result_set, position) -> {
+				byte[] value = result_set.getBytes(position);
+				if (value == null) {
+					return null;
+				}
+				ByteBuffer buffer = ByteBuffer.wrap(value);
+				return new UUID(buffer.getLong(), buffer.getLong());
+			},
+			UUID::fromString, () -> null);
+
+	public static final TypeCodec<UUID> UUID_STRING = codec(Types.CHAR,
+			(statement, index, value) -> statement.setString(index, value.toString()),
+			(result_set, position) -> {
+				String value = result_set.getString(position);
+				return value == null ? null : UUID.fromString(value);
+			},
+			UUID::fromString, () -> null);
+
+	private TypeCodecs() {
+	}
+
+	/**
+	 *
+	 * Registers the codec for a type, replacing the built-in one. Repositories pick their codecs when they are created.
+	 *
+	 * @param type		The type of the fields the codec is used for.
+	 * @param codec		The codec.
+	 */
+	public static <V> void register(Class<V> type, TypeCodec<V> codec) {
+		registered.put(type, codec);
+	}
+
+	public static void unregister(Class<?> type) {
+		registered.remove(type);
+	}
+
+	/**
+	 *
+	 * Returns the codec for a field of the given type, mapped to the given column.
+	 * Primitive types get the codec of their boxed type.
+	 *
+	 * @param type		The declared type of the field.
+	 * @param column	The column the field is mapped to.
+	 * @return      	The registered codec for the type, or else the built-in one.
+	 */
+	@SuppressWarnings("unchecked")
+	public static TypeCodec<Object> forType(Class<?> type, ColumnDefinition column) {
+		TypeCodec<?> codec = registered.get(type);
+		if (codec == null) {
+			codec = builtIn(type, column);
+		}
+		return (TypeCodec<Object>) codec;
+	}
+
+	/**
+	 *
+	 * Returns the codec for binding the value to a parameter compared with the given column.
+	 */
+	public static TypeCodec<Object> forValue(Object value, ColumnDefinition column) {
+		return forType(value.getClass(), column);
+	}
+
+	private static TypeCodec<?> builtIn(Class<?> type, ColumnDefinition column) {
+		if (type == String.class) {
+			return STRING;
+		} else if (type == int.class || type == Integer.class) {
+			return INTEGER;
+		} else if (type == long.class || type == Long.class) {
+			return LONG;
+		} else if (type == double.class || type == Double.class) {
+			return DOUBLE;
+		} else if (type == float.class || type == Float.class) {
+			return FLOAT;
+		} else if (type == boolean.class || type == Boolean.class) {
+			return BOOLEAN;
+		} else if (type == BigDecimal.class) {
+			return BIG_DECIMAL;
+		} else if (type == LocalDate.class) {
+			return LOCAL_DATE;
+		} else if (type == LocalDateTime.class) {
+			return LOCAL_DATE_TIME;
+		} else if (type == Instant.class) {
+			return INSTANT;
+		} else if (type == byte[].class) {
+			return BYTES;
+		} else if (type == UUID.class) {
+			return column != null && column.type == ColumnDefinitionType.BINARY ? UUID_BINARY : UUID_STRING;
+		} else if (type.isEnum() || (type.getSuperclass() != null && type.getSuperclass().isEnum())) {
+			// Constants with a body are subclasses of their enum.
+			Class<?> enum_type = type.isEnum() ? type : type.getSuperclass();
+			return enums.computeIfAbsent(enum_type, TypeCodecs::enumCodec);
+		}
+
+		return objects.computeIfAbsent(type, TypeCodecs::objectCodec);
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static TypeCodec<?> enumCodec(Class<?> type) {
+		Class<? extends Enum> enum_type = (Class<? extends Enum>) type;
+		return codec(Types.VARCHAR,
+				(statement, index, value) -> statement.setString(index, ((Enum<?>) value).name()),
+				(result_set, position) -> {
+					String value = result_set.getString(position);
+					return value == null ? null : Enum.valueOf(enum_type, value);
+				},
+				text -> Enum.valueOf(enum_type, text), () -> null);
+	}
+
+	private static TypeCodec<?> objectCodec(Class<?> type) {
+		return codec(Types.OTHER,
+				PreparedStatement::setObject, (result_set, position) -> result_set.getObject(position, type),
+				text -> {
+					throw new UnsupportedOperationException(type.getName() + " has no text form; register a TypeCodec for it");
+				},
+				() -> null);
+	}
+
+	/**
+	 *
+	 * Parses `yyyy-MM-dd`, `yyyy-MM-dd HH:mm:ss[.fraction]` and the ISO form with a T.
+	 */
+	private static LocalDateTime parseDateTime(String text) {
+		if (text.length() == 10) {
+			return LocalDate.parse(text).atStartOfDay();
+		}
+		return LocalDateTime.parse(text.replace(' ', 'T'));
+	}
+
+	private interface Binder<V> {
+		void bind(PreparedStatement statement, int index, V value) throws SQLException;
+	}
+
+	private interface Reader<V> {
+		V read(ResultSet result_set, int position) throws SQLException;
+	}
+
+	private static <V> TypeCodec<V> codec(int sql_type, Binder<V> binder, Reader<V> reader, Function<String, V> parser, Supplier<V> empty) {
+		return new TypeCodec<>() {
+			@Override
+			public void bind(PreparedStatement statement, int index, V value) throws SQLException {
+				binder.bind(statement, index, value);
+			}
+
+			@Override
+			public V read(ResultSet result_set, int position) throws SQLException {
+				return reader.read(result_set, position);
+			}
+
+			@Override
+			public int sqlType() {
+				return sql_type;
+			}
+
+			@Override
+			public V parse(String text) {
+				return parser.apply(text);
+			}
+
+			@Override
+			public V empty() {
+				return empty.get();
+			}
+		};
+	}
+}
@@ -0,0 +1,48 @@
+package com.syter6.jdbr;
+
+/**
+ *
+ * The outcome of upsertAll() or createAllIfAbsent(): a BatchResult that also tells inserted records from existing ones.
+ * MySQL reports 1 affected row for an inserted record, 2 for an updated one, and 0 for an existing record that was left as it was.
+ * Connector/J reports an upsert that changed nothing as 1, like an insert, unless the URL sets useAffectedRows=true.
+ * Batches rewritten by rewriteBatchedStatements=true don't report per record, and aren't counted here.
+ */
+public class UpsertResult extends BatchResult {
+
+	private int inserted = 0;
+	private int updated = 0;
+	private int unchanged = 0;
+
+	@Override
+	void counted(int[] counts) {
+		for (int count : counts) {
+			switch (count) {
+				case 0 -> this.unchanged++;
+				case 1 -> this.inserted++;
+				case 2 -> this.updated++;
+				default -> {}
+			}
+		}
+	}
+
+	public int getRowsInserted() {
+		return this.inserted;
+	}
+
+	public int getRowsUpdated() {
+		return this.updated;
+	}
+
+	/**
+	 *
+	 * @return      the number of existing records that were ignored, or upserted without changes.
+	 */
+	public int getRowsUnchanged() {
+		return this.unchanged;
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + ": " + this.inserted + " inserted, " + this.updated + " updated, " + this.unchanged + " unchanged";
+	}
+}
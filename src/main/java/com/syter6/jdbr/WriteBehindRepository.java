@@ -0,0 +1,480 @@
+package com.syter6.jdbr;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ *
+ * Buffers the writes of a repository and persists them in the background, for high rates of small writes.
+ * Writes return at once with a future that completes when the write has been committed (true) or has failed (false).
+ * Writes to a primary key that is still buffered are merged with it, so only the last state of a record is written.
+ * The buffer is flushed in batched transactions every DatabaseConfig.WRITE_BEHIND_FLUSH_MILLIS,
+ * or as soon as DatabaseConfig.BATCH_SIZE records are buffered. When DatabaseConfig.WRITE_BEHIND_BUFFER_SIZE records
+ * are buffered, writers wait until the flusher has made room.
+ *
+ * Reads through the repository don't see buffered writes. Models are copied when buffered,
+ * so keys generated for an int primary key of 0 aren't written back into the model.
+ */
+public class WriteBehindRepository<T> implements AutoCloseable {
+
+	private enum Kind { CREATE, UPDATE, UPSERT, DELETE }
+
+	private record FieldUpdate(String value, ColumnDefinitionType type) {}
+
+	/**
+	 *
+	 * Receives the outcome of every flushed batch.
+	 */
+	public interface FlushListener {
+		void flushed(int records, boolean committed, long nanos);
+
+		/**
+		 *
+		 * Called when writing a batch or record threw, instead of reporting it through the repository.
+		 */
+		default void failed(RuntimeException ex) {
+		}
+	}
+
+	// The buffered state of one record. Only changed within ConcurrentHashMap.compute(), and read after it is removed.
+	private final class Pending {
+		private final String key;
+		private final CompletableFuture<Boolean> persisted = new CompletableFuture<>();
+
+		// Null when only fields are updated.
+		private Kind kind;
+		private T model;
+		private LinkedHashMap<String, FieldUpdate> fields;
+
+		private Pending(String key) {
+			this.key = key;
+		}
+	}
+
+	private final BaseRepository<T> repository;
+	private final int batch_size;
+	private final long flush_nanos;
+
+	private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+	// The buffered keys, in the order they were first written.
+	private final ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<>();
+	private final Semaphore capacity;
+
+	// Records taken from the buffer whose flush hasn't finished yet.
+	private final Set<Pending> flushing = ConcurrentHashMap.newKeySet();
+
+	// Keys for creates with a generated primary key, which are never merged.
+	private final AtomicLong new_keys = new AtomicLong();
+
+	private final AtomicInteger buffered = new AtomicInteger();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong flushed = new AtomicLong();
+
+	private volatile FlushListener listener;
+	private volatile boolean flush_requested = false;
+	private volatile boolean closed = false;
+	private final Thread flusher;
+
+	public WriteBehindRepository(BaseRepository<T> repository) {
+		this(repository, DatabaseConfig.WRITE_BEHIND_BUFFER_SIZE, DatabaseConfig.BATCH_SIZE, DatabaseConfig.WRITE_BEHIND_FLUSH_MILLIS);
+	}
+
+	/**
+	 *
+	 * @param repository	The repository doing the writes.
+	 * @param buffer_size	The maximum number of buffered records. Writers wait when it is reached.
+	 * @param batch_size	The number of records flushed per transaction.
+	 * @param flush_millis	How long a write stays buffered at most, before it is flushed.
+	 */
+	public WriteBehindRepository(BaseRepository<T> repository, int buffer_size, int batch_size, long flush_millis) {
+		this.repository = repository;
+		this.batch_size = Math.max(1, batch_size);
+		this.flush_nanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flush_millis));
+		this.capacity = new Semaphore(Math.max(1, buffer_size));
+
+		this.flusher = new Thread(this::run, "jdbr-write-behind-" + repository.table_name);
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	public void setFlushListener(FlushListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 *
+	 * Buffers the creation of a record.
+	 *
+	 * @param  data		a model with the data to be inserted in the database.
+	 * @return 			a future completing with true once the record has been committed, or false when it failed.
+	 */
+	public CompletableFuture<Boolean> create(T data) {
+		return this.write(data, Kind.CREATE);
+	}
+
+	public CompletableFuture<Boolean> update(T data) {
+		return this.write(data, Kind.UPDATE);
+	}
+
+	public CompletableFuture<Boolean> upsert(T data) {
+		return this.write(data, Kind.UPSERT);
+	}
+
+	public CompletableFuture<Boolean> delete(T data) {
+		return this.write(data, Kind.DELETE);
+	}
+
+	/**
+	 *
+	 * Buffers the update of a single column. Updates of the same column of a buffered record replace each other.
+	 *
+	 * @param  primary_key		The primary key of the record to be updated
+	 * @param  column			The column to be updated
+	 * @param  new_value		The new value of the column.
+	 * @return 			a future completing with true once the update has been committed, or false when it failed.
+	 */
+	public CompletableFuture<Boolean> updateField(String primary_key, String column, String new_value, ColumnDefinitionType column_type) {
+		if (primary_key == null || column == null) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		return this.buffer(primary_key, pending -> {
+			// Updating a record that is going to be deleted changes nothing.
+			if (pending.kind == Kind.DELETE) {
+				return;
+			}
+			if (pending.fields == null) {
+				pending.fields = new LinkedHashMap<>();
+			}
+			pending.fields.put(column, new FieldUpdate(new_value, column_type));
+		});
+	}
+
+	private CompletableFuture<Boolean> write(T data, Kind kind) {
+		if (data == null) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		Object primary_key = this.repository.mapper.get(data, 0);
+		String key;
+		if (kind == Kind.CREATE && (primary_key == null || primary_key instanceof Integer id && id == 0)) {
+			key = "\0" + this.new_keys.incrementAndGet();
+		} else if (primary_key == null) {
+			return CompletableFuture.completedFuture(false);
+		} else {
+			key = String.valueOf(primary_key);
+		}
+
+		T model = this.repository.copy(data);
+		return this.buffer(key, pending -> {
+			// Updating a record that is going to be deleted changes nothing.
+			if (pending.kind == Kind.DELETE && kind == Kind.UPDATE) {
+				return;
+			}
+
+			pending.kind = merge(pending, kind);
+			pending.model = model;
+			// The model holds every column, so earlier field updates are superseded.
+			pending.fields = null;
+		});
+	}
+
+	/**
+	 *
+	 * @return      the kind of write with the same outcome as the buffered write followed by the new one.
+	 */
+	private Kind merge(Pending pending, Kind next) {
+		boolean buffered = pending.model != null || pending.fields != null;
+		if (!buffered || next == Kind.DELETE || next == Kind.UPSERT) {
+			return next;
+		}
+		if (next == Kind.UPDATE) {
+			// An update of a buffered create or upsert is part of it.
+			return pending.kind == null ? Kind.UPDATE : pending.kind;
+		}
+		// A create after anything but a create replaces whatever is, or isn't, there.
+		return pending.kind == Kind.CREATE ? Kind.CREATE : Kind.UPSERT;
+	}
+
+	private CompletableFuture<Boolean> buffer(String key, Consumer<Pending> change) {
+		if (this.closed) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		// Backpressure: a permit per buffered record, handed back when it has been flushed.
+		try {
+			this.capacity.acquire();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return CompletableFuture.completedFuture(false);
+		}
+
+		// Closed while waiting for room in the buffer.
+		if (this.closed) {
+			this.capacity.release();
+			return CompletableFuture.completedFuture(false);
+		}
+
+		boolean[] added = new boolean[1];
+		Pending merged = this.pending.compute(key, (k, pending) -> {
+			if (pending == null) {
+				pending = new Pending(k);
+				added[0] = true;
+			}
+			change.accept(pending);
+			return pending;
+		});
+
+		if (added[0]) {
+			this.order.add(key);
+			if (this.buffered.incrementAndGet() >= this.batch_size) {
+				LockSupport.unpark(this.flusher);
+			}
+		} else {
+			this.capacity.release();
+			this.coalesced.incrementAndGet();
+		}
+
+		return merged.persisted;
+	}
+
+	/**
+	 *
+	 * Flushes everything buffered so far, without waiting for the flush interval.
+	 *
+	 * @return 			a future completing with true once every write buffered before the call has been committed.
+	 */
+	public CompletableFuture<Boolean> flush() {
+		// flushBatch() adds a record to flushing before removing it from the buffer, so scanning the buffer first
+		// finds every record: either still in the buffer, or already in flushing, or already persisted.
+		List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+		for (Pending pending : this.pending.values()) {
+			futures.add(pending.persisted);
+		}
+		for (Pending pending : this.flushing) {
+			futures.add(pending.persisted);
+		}
+
+		this.flush_requested = true;
+		LockSupport.unpark(this.flusher);
+
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+				.thenApply(ignored -> futures.stream().allMatch(CompletableFuture::join));
+	}
+
+	/**
+	 *
+	 * Stops accepting writes, flushes the buffer and waits for the flusher to finish.
+	 * Writes made after closing complete with false.
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		LockSupport.unpark(this.flusher);
+
+		try {
+			this.flusher.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+
+		// Writes that were accepted just before closing.
+		while (!this.order.isEmpty()) {
+			this.flushBatch();
+		}
+	}
+
+	private void run() {
+		long next_flush = System.nanoTime() + this.flush_nanos;
+
+		while (true) {
+			boolean closing = this.closed;
+			boolean requested = this.flush_requested;
+			this.flush_requested = false;
+
+			// Full batches are flushed right away, the rest when the interval has passed.
+			boolean everything = closing || requested || System.nanoTime() >= next_flush;
+			while (!this.order.isEmpty() && (everything || this.buffered.get() >= this.batch_size)) {
+				this.flushBatch();
+			}
+			if (everything) {
+				next_flush = System.nanoTime() + this.flush_nanos;
+			}
+
+			if (closing) {
+				return;
+			}
+
+			LockSupport.parkNanos(this, Math.max(0, next_flush - System.nanoTime()));
+		}
+	}
+
+	private void flushBatch() {
+		List<Pending> batch = new ArrayList<>();
+		while (batch.size() < this.batch_size) {
+			String key = this.order.poll();
+			if (key == null) {
+				break;
+			}
+			// Added to flushing before it leaves the buffer, which flush() relies on.
+			Pending pending = this.pending.get(key);
+			if (pending != null) {
+				this.flushing.add(pending);
+				this.pending.remove(key);
+				batch.add(pending);
+			}
+		}
+
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		this.buffered.addAndGet(-batch.size());
+		this.capacity.release(batch.size());
+
+		long start = System.nanoTime();
+		boolean committed = this.persist(batch);
+		FlushListener listener = this.listener;
+		if (listener != null) {
+			listener.flushed(batch.size(), committed, System.nanoTime() - start);
+		}
+
+		for (Pending pending : batch) {
+			// One bad record shouldn't fail the rest of the batch: after a rollback, they are written one by one.
+			boolean success = committed || this.persist(pending);
+			if (success) {
+				this.flushed.incrementAndGet();
+			}
+			this.flushing.remove(pending);
+			pending.persisted.complete(success);
+		}
+	}
+
+	/**
+	 *
+	 * Writes the batch in a single transaction, with a batched statement per kind of write.
+	 *
+	 * @return 			a boolean, indicating whether the transaction has been committed.
+	 */
+	private boolean persist(List<Pending> batch) {
+		Map<Kind, List<T>> models = new LinkedHashMap<>();
+		for (Kind kind : Kind.values()) {
+			models.put(kind, new ArrayList<>());
+		}
+		for (Pending pending : batch) {
+			if (pending.kind != null) {
+				models.get(pending.kind).add(pending.model);
+			}
+		}
+
+		try {
+			return Transaction.inTransaction(this.repository.pool, false, tx -> {
+				boolean success = true;
+				if (!models.get(Kind.CREATE).isEmpty()) {
+					success = this.repository.createAll(models.get(Kind.CREATE), this.batch_size).isSuccess();
+				}
+				if (success && !models.get(Kind.UPSERT).isEmpty()) {
+					success = this.repository.upsertAll(models.get(Kind.UPSERT), this.batch_size).isSuccess();
+				}
+				if (success && !models.get(Kind.UPDATE).isEmpty()) {
+					success = this.repository.updateAll(models.get(Kind.UPDATE), this.batch_size).isSuccess();
+				}
+				for (int i = 0; success && i < batch.size(); i++) {
+					success = this.updateFields(batch.get(i));
+				}
+				if (success && !models.get(Kind.DELETE).isEmpty()) {
+					success = this.repository.deleteAll(models.get(Kind.DELETE), this.batch_size).isSuccess();
+				}
+
+				if (!success) {
+					tx.setRollbackOnly();
+				}
+			});
+		} catch (RuntimeException ex) {
+			this.reportError(ex);
+			return false;
+		}
+	}
+
+	private boolean persist(Pending pending) {
+		try {
+			boolean success = pending.kind == null || switch (pending.kind) {
+				case CREATE -> this.repository.create(pending.model);
+				case UPDATE -> this.repository.update(pending.model);
+				case UPSERT -> this.repository.upsert(pending.model);
+				case DELETE -> this.repository.delete(pending.model);
+			};
+
+			return success && this.updateFields(pending);
+		} catch (RuntimeException ex) {
+			this.reportError(ex);
+			return false;
+		}
+	}
+
+	/**
+	 *
+	 * Hands an exception thrown while writing to the FlushListener, or reports it like the repository reports its errors.
+	 */
+	private void reportError(RuntimeException ex) {
+		FlushListener listener = this.listener;
+		if (listener != null) {
+			listener.failed(ex);
+		} else {
+			this.repository.reportError(ex.getCause() instanceof SQLException cause ? cause : new SQLException(ex.getMessage(), ex));
+		}
+	}
+
+	private boolean updateFields(Pending pending) {
+		if (pending.fields == null) {
+			return true;
+		}
+
+		for (Map.Entry<String, FieldUpdate> field : pending.fields.entrySet()) {
+			FieldUpdate update = field.getValue();
+			if (!this.repository.updateField(pending.key, field.getKey(), update.value, update.type)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @return      the number of records waiting to be flushed.
+	 */
+	public int getBufferedCount() {
+		return this.buffered.get();
+	}
+
+	/**
+	 *
+	 * @return      the number of writes merged into an already buffered write of the same record.
+	 */
+	public long getCoalescedCount() {
+		return this.coalesced.get();
+	}
+
+	public long getFlushedCount() {
+		return this.flushed.get();
+	}
+
+	@Override
+	public String toString() {
+		return "WriteBehindRepository (" + this.repository.table_name + ", buffered: " + this.getBufferedCount()
+				+ ", coalesced: " + this.getCoalescedCount() + ", flushed: " + this.getFlushedCount() + ")";
+	}
+}
@@ -7,5 +7,9 @@ public class UserRepository extends BaseRepository<User> {
 
 	public UserRepository() {
 		super("users", User::new);
+
+		// The entity cache stays off here, so lookups behave like every other repository's unless a
+		// subclass opts in, for example with this.enableCache(10_000, 5 * 60 * 1000). It's left to the
+		// application, since cached users don't see changes made outside this repository until they expire.
 	}
 }
@@ -0,0 +1,65 @@
+package com.syter6.jdbr;
+
+import com.syter6.jdbr.models.Product;
+import com.syter6.jdbr.repositories.ProductRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncDataRepositoryTest {
+
+	// Takes a few seconds on H2, which checks for cancellation while iterating the range.
+	private static final String SLOW_QUERY = "SELECT * FROM product WHERE (SELECT SUM(X) FROM SYSTEM_RANGE(1, 1000000000)) < 0";
+
+	private ProductRepository products;
+	private AsyncDataRepository<Product> async;
+
+	@BeforeAll
+	public static void setUpDatabase() {
+		TestDatabase.setUp();
+	}
+
+	@BeforeEach
+	public void truncate() {
+		this.products = new ProductRepository();
+		this.products.truncate();
+		this.async = new AsyncDataRepository<>(this.products);
+	}
+
+	@Test
+	public void runsManyOperationsConcurrently() {
+		List<CompletableFuture<Boolean>> creates = new ArrayList<>();
+		for (int i = 1; i <= 200; i++) {
+			creates.add(this.async.create(new Product(i, "Product " + i)));
+		}
+		CompletableFuture.allOf(creates.toArray(new CompletableFuture[0])).join();
+
+		assertTrue(creates.stream().allMatch(CompletableFuture::join));
+		assertEquals(200, this.async.getAll().join().size());
+		assertEquals("Product 42", this.async.getById(42).join().name);
+	}
+
+	@Test
+	public void timeoutCancelsTheRunningStatement() {
+		this.products.create(new Product(1, "Product 1"));
+
+		long start = System.currentTimeMillis();
+		CompletableFuture<ArrayList<Product>> future = this.async.call(repository -> repository.getAll(SLOW_QUERY), Duration.ofMillis(200));
+
+		ExecutionException ex = assertThrows(ExecutionException.class, future::get);
+		assertInstanceOf(TimeoutException.class, ex.getCause());
+
+		// The connection comes back once the statement has been cancelled.
+		assertTrue(this.async.create(new Product(2, "Product 2")).join());
+		assertTrue(System.currentTimeMillis() - start < 5000);
+	}
+}
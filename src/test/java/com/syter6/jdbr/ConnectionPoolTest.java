@@ -0,0 +1,151 @@
+package com.syter6.jdbr;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+	@BeforeAll
+	public static void setUpDatabase() {
+		TestDatabase.setUp();
+	}
+
+	@Test
+	public void returnedConnectionsAreReused() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(TestDatabase.URL, "sa", "");
+
+		try (PooledConnection first = pool.borrow()) {
+			assertTrue(first.getConnection().isValid(1));
+		}
+		try (PooledConnection second = pool.borrow()) {
+			assertTrue(second.getConnection().isValid(1));
+		}
+		pool.close();
+
+		assertEquals(1, pool.getCreatedCount());
+		assertEquals(2, pool.getBorrowCount());
+	}
+
+	@Test
+	public void closingTwiceReturnsTheConnectionOnce() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(TestDatabase.URL, "sa", "");
+
+		try (PooledConnection pooled = pool.borrow()) {
+			pooled.close();
+		}
+		assertEquals(0, pool.getActiveCount());
+		assertEquals(1, pool.getIdleCount());
+
+		PooledConnection first = pool.borrow();
+		PooledConnection second = pool.borrow();
+		assertNotSame(first.getConnection(), second.getConnection());
+		assertEquals(2, pool.getActiveCount());
+
+		first.close();
+		second.close();
+		pool.close();
+	}
+
+	@Test
+	public void borrowTimesOutWhenPoolIsExhausted() throws SQLException {
+		int max_size = DatabaseConfig.POOL_MAX_SIZE;
+		long max_wait = DatabaseConfig.POOL_MAX_WAIT_MILLIS;
+		DatabaseConfig.POOL_MAX_SIZE = 1;
+		DatabaseConfig.POOL_MAX_WAIT_MILLIS = 50;
+
+		ConnectionPool pool = new ConnectionPool(TestDatabase.URL, "sa", "");
+		DatabaseConfig.POOL_MAX_SIZE = max_size;
+		DatabaseConfig.POOL_MAX_WAIT_MILLIS = max_wait;
+
+		try (PooledConnection ignored = pool.borrow()) {
+			assertThrows(SQLTimeoutException.class, pool::borrow);
+		}
+		pool.close();
+
+		assertEquals(1, pool.getTimeoutCount());
+	}
+
+	@Test
+	public void uncommittedWorkIsRolledBackOnRelease() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(TestDatabase.URL, "sa", "");
+
+		try (PooledConnection pooled = pool.borrow()) {
+			pooled.begin();
+			pooled.getConnection().createStatement().executeUpdate("INSERT INTO product (num, name) VALUES (999, 'Rollback')");
+		}
+
+		try (PooledConnection pooled = pool.borrow()) {
+			assertTrue(pooled.getConnection().getAutoCommit());
+			var result_set = pooled.getConnection().createStatement().executeQuery("SELECT COUNT(*) FROM product WHERE num = 999");
+			result_set.next();
+			assertEquals(0, result_set.getInt(1));
+		}
+		pool.close();
+	}
+
+	@Test
+	public void idleConnectionsAreEvicted() throws SQLException {
+		long idle_timeout = DatabaseConfig.POOL_IDLE_TIMEOUT_MILLIS;
+		DatabaseConfig.POOL_IDLE_TIMEOUT_MILLIS = 0;
+
+		ConnectionPool pool = new ConnectionPool(TestDatabase.URL, "sa", "");
+		DatabaseConfig.POOL_IDLE_TIMEOUT_MILLIS = idle_timeout;
+
+		pool.borrow().close();
+		pool.evictIdle();
+		pool.close();
+
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(1, pool.getDestroyedCount());
+	}
+
+	@Test
+	public void preparedStatementsAreCachedPerConnection() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(TestDatabase.URL, "sa", "");
+
+		PreparedStatement first;
+		PreparedStatement second;
+		try (PooledConnection pooled = pool.borrow()) {
+			first = pooled.prepare("SELECT * FROM product WHERE num = ?");
+		}
+		try (PooledConnection pooled = pool.borrow()) {
+			second = pooled.prepare("SELECT * FROM product WHERE num = ?");
+		}
+		pool.close();
+
+		assertSame(first, second);
+		assertEquals(1, pool.getStatementCacheHits());
+		assertEquals(1, pool.getStatementCacheMisses());
+	}
+
+	@Test
+	public void cachedStatementsDropAbandonedBatches() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(TestDatabase.URL, "sa", "");
+		String sql = "INSERT INTO product (num, name) VALUES (?, ?)";
+
+		try (PooledConnection pooled = pool.borrow()) {
+			pooled.getConnection().createStatement().execute("DELETE FROM product");
+
+			// A binder failed after the first row, so executeBatch() was never called.
+			PreparedStatement abandoned = pooled.prepare(sql);
+			abandoned.setInt(1, 1);
+			abandoned.setString(2, "Stale");
+			abandoned.addBatch();
+
+			PreparedStatement statement = pooled.prepare(sql);
+			statement.setInt(1, 2);
+			statement.setString(2, "Fresh");
+			statement.addBatch();
+			assertEquals(1, statement.executeBatch().length);
+
+			pooled.getConnection().createStatement().execute("DELETE FROM product");
+		}
+		pool.close();
+	}
+}
@@ -0,0 +1,67 @@
+package com.syter6.jdbr;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityCacheTest {
+
+	@Test
+	public void clockEvictsKeysThatWerentHit() {
+		EntityCache<String> cache = new EntityCache<>(2, 0, UnaryOperator.identity());
+
+		cache.get("a", () -> "A");
+		cache.get("b", () -> "B");
+		cache.get("a", () -> "reloaded");
+		cache.get("c", () -> "C");
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals("A", cache.get("a", () -> "reloaded"));
+		assertEquals("B again", cache.get("b", () -> "B again"));
+	}
+
+	@Test
+	public void clockDropsRemovedKeysBelowCapacity() {
+		ClockEvictionPolicy policy = new ClockEvictionPolicy();
+
+		// The cache never fills up, so the hand never runs.
+		for (int i = 0; i < 10_000; i++) {
+			policy.added("key" + i);
+			policy.removed("key" + i);
+		}
+
+		assertTrue(policy.clockLength() < 100, "Expected a compacted clock, got " + policy.clockLength());
+	}
+
+	@Test
+	public void lruEvictsTheLeastRecentlyUsedKey() {
+		EntityCache<String> cache = new EntityCache<>(2, 0, UnaryOperator.identity(), new LruEvictionPolicy());
+
+		cache.get("a", () -> "A");
+		cache.get("b", () -> "B");
+		cache.get("a", () -> "reloaded");
+		cache.get("c", () -> "C");
+
+		assertEquals("A", cache.get("a", () -> "reloaded"));
+		assertEquals("B again", cache.get("b", () -> "B again"));
+	}
+
+	@Test
+	public void invalidationOnlyDiscardsLoadsOfItsKey() {
+		EntityCache<String> cache = new EntityCache<>(10, 0, UnaryOperator.identity());
+
+		// Written while the loads were running.
+		cache.getAll(List.of("a", "b"), keys -> {
+			cache.invalidate("a");
+			return Map.of("a", "stale A", "b", "B");
+		});
+
+		assertEquals("fresh A", cache.get("a", () -> "fresh A"));
+		assertEquals("B", cache.get("b", () -> "reloaded"));
+	}
+}
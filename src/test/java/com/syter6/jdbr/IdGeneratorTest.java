@@ -0,0 +1,151 @@
+package com.syter6.jdbr;
+
+import com.syter6.jdbr.models.Product;
+import com.syter6.jdbr.repositories.ProductRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+
+	public static class Tag {
+		public int id;
+		public String name;
+
+		public Tag() {}
+
+		public Tag(String name) {
+			this.name = name;
+		}
+	}
+
+	public static class TagRepository extends BaseRepository<Tag> {
+		public TagRepository() {
+			super("tag", Tag::new);
+			this.setIdGenerator(new AutoIncrementIdGenerator());
+		}
+	}
+
+	public static class MaxProductRepository extends ProductRepository {
+		public MaxProductRepository() {
+			this.setIdGenerator(new MaxIdGenerator("product", "num"));
+		}
+	}
+
+	@BeforeAll
+	public static void setUpDatabase() {
+		TestDatabase.setUp();
+	}
+
+	@Test
+	public void blockGeneratorHandsOutUniqueIdsAcrossThreads() throws Exception {
+		MaxIdGenerator generator = new MaxIdGenerator("product", "num");
+		Set<Integer> ids = ConcurrentHashMap.newKeySet();
+
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < 16; t++) {
+			futures.add(executor.submit(() -> {
+				try (PooledConnection pooled = ConnectionPool.getInstance().borrow()) {
+					for (int i = 0; i < 1000; i++) {
+						ids.add(generator.nextId(pooled.getConnection()));
+					}
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertEquals(16_000, ids.size());
+	}
+
+	@Test
+	public void sequenceGeneratorReservesBlocks() throws SQLException {
+		ConnectionPool pool = ConnectionPool.getInstance();
+		try (SequenceIdGenerator first = new SequenceIdGenerator(pool, "product", "num", 10);
+			 SequenceIdGenerator second = new SequenceIdGenerator(pool, "product", "num", 10);
+			 PooledConnection pooled = pool.borrow()) {
+			int a = first.nextId(pooled.getConnection());
+			int b = second.nextId(pooled.getConnection());
+			int c = first.nextId(pooled.getConnection());
+
+			assertEquals(a + 10, b);
+			assertEquals(a + 1, c);
+		}
+	}
+
+	@Test
+	public void maxGeneratorSkipsIdsInsertedOutsideTheRepository() throws SQLException {
+		MaxProductRepository repos = new MaxProductRepository();
+		repos.truncate();
+
+		assertTrue(repos.create(new Product(0, "first")));
+
+		// The id the generator would hand out next
+		int taken = repos.getAll().get(0).num + 1;
+		try (Connection conn = DriverManager.getConnection(TestDatabase.URL, "sa", "");
+			 Statement statement = conn.createStatement()) {
+			statement.executeUpdate("INSERT INTO product (num, name) VALUES (" + taken + ", 'outside')");
+		}
+
+		assertTrue(repos.create(new Product(0, "second")));
+		assertTrue(repos.createAll(List.of(new Product(0, "third"), new Product(0, "fourth"))).isSuccess());
+		assertEquals(5, repos.count());
+
+		repos.truncate();
+	}
+
+	@Test
+	public void sequenceGeneratorDoesNotWaitForThePool() throws SQLException {
+		int max_size = DatabaseConfig.POOL_MAX_SIZE;
+		long max_wait = DatabaseConfig.POOL_MAX_WAIT_MILLIS;
+		DatabaseConfig.POOL_MAX_SIZE = 1;
+		DatabaseConfig.POOL_MAX_WAIT_MILLIS = 50;
+
+		ConnectionPool pool = new ConnectionPool(TestDatabase.URL, "sa", "");
+		DatabaseConfig.POOL_MAX_SIZE = max_size;
+		DatabaseConfig.POOL_MAX_WAIT_MILLIS = max_wait;
+
+		// The insert holds the only connection while it asks for an id
+		try (SequenceIdGenerator generator = new SequenceIdGenerator(pool, "product", "num", 10);
+			 PooledConnection pooled = pool.borrow()) {
+			int a = generator.nextId(pooled.getConnection());
+			assertEquals(a + 1, generator.nextId(pooled.getConnection()));
+		} finally {
+			pool.close();
+		}
+	}
+
+	@Test
+	public void autoIncrementKeysAreWrittenBack() {
+		TagRepository repos = new TagRepository();
+		repos.truncate();
+
+		Tag single = new Tag("single");
+		repos.create(single);
+
+		List<Tag> tags = List.of(new Tag("a"), new Tag("b"));
+		repos.createAll(tags);
+		repos.truncate();
+
+		assertNotEquals(0, single.id);
+		assertEquals(single.id + 1, tags.get(0).id);
+		assertEquals(single.id + 2, tags.get(1).id);
+	}
+}
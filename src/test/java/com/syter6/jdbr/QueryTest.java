@@ -0,0 +1,120 @@
+package com.syter6.jdbr;
+
+import com.syter6.jdbr.models.Product;
+import com.syter6.jdbr.models.User;
+import com.syter6.jdbr.repositories.ProductRepository;
+import com.syter6.jdbr.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryTest {
+
+	private UserRepository users;
+
+	@BeforeAll
+	public static void setUpDatabase() {
+		TestDatabase.setUp();
+	}
+
+	@BeforeEach
+	public void createUsers() {
+		this.users = new UserRepository();
+		this.users.truncate();
+
+		List<User> data = new ArrayList<>();
+		for (int i = 1; i <= 10; i++) {
+			data.add(new User("user" + i + "@example.com", i % 2 == 0 ? "Even" : "Odd", i, LocalDate.of(2000, 1, i), i / 2.0, i > 5));
+		}
+		this.users.createAll(data);
+	}
+
+	@Test
+	public void combinesPredicatesOrderAndLimit() {
+		List<User> found = this.users.query()
+				.where("name", "Even")
+				.where("clearance", ">", 2)
+				.orderByDesc("clearance")
+				.limit(2)
+				.list();
+
+		assertEquals(2, found.size());
+		assertEquals(10, found.get(0).clearance);
+		assertEquals(8, found.get(1).clearance);
+	}
+
+	@Test
+	public void projectionOnlyFetchesSelectedColumns() {
+		User user = this.users.query().select("email", "clearance").where("clearance", 3).first();
+
+		assertEquals("user3@example.com", user.email);
+		assertEquals(3, user.clearance);
+		assertNull(user.name);
+	}
+
+	@Test
+	public void offsetSkipsRecords() {
+		List<User> found = this.users.query().orderBy("clearance").offset(7).list();
+
+		assertEquals(List.of(8, 9, 10), found.stream().map(user -> user.clearance).toList());
+	}
+
+	@Test
+	public void keysetPaginationVisitsEveryRecordOnce() {
+		List<String> visited = new ArrayList<>();
+
+		Query<User> query = this.users.query().orderBy("name").limit(3);
+		List<User> page = query.list();
+		while (!page.isEmpty()) {
+			page.forEach(user -> visited.add(user.email));
+			page = query.after(page.get(page.size() - 1)).list();
+		}
+
+		assertEquals(10, visited.size());
+		assertEquals(10, visited.stream().distinct().count());
+		assertTrue(visited.indexOf("user2@example.com") < visited.indexOf("user1@example.com"));
+	}
+
+	@Test
+	public void streamsMatchingRecords() {
+		ProductRepository products = new ProductRepository();
+		products.truncate();
+		products.createAll(List.of(new Product(1, "Apple"), new Product(2, "Pear"), new Product(3, "Apricot")));
+
+		try (Stream<Product> stream = products.query().where("name", "LIKE", "Ap%").whereIn("num", List.of(1, 2, 3)).stream()) {
+			assertEquals(2, stream.count());
+		}
+		products.truncate();
+	}
+
+	@Test
+	public void aggregatesRunOnTheServer() {
+		assertEquals(10, this.users.count());
+		assertEquals(5, this.users.count("name", "Even"));
+		assertEquals(55, this.users.sum("clearance"));
+		assertEquals(1, this.users.min("clearance"));
+		assertEquals(10, this.users.max("clearance"));
+		assertEquals(2.75, this.users.avg("grade"), 0.001);
+		assertEquals(3, this.users.query().where("verified", true).where("clearance", "<", 9).count());
+		assertTrue(Double.isNaN(this.users.query().where("clearance", ">", 100).max("clearance")));
+	}
+
+	@Test
+	public void existsChecksForAMatchingRecord() {
+		assertTrue(this.users.exists("email", "user7@example.com"));
+		assertFalse(this.users.exists("email", "nobody@example.com"));
+	}
+
+	@Test
+	public void rejectsUnknownColumnsAndOperators() {
+		assertThrows(IllegalArgumentException.class, () -> this.users.query().where("password", "x"));
+		assertThrows(IllegalArgumentException.class, () -> this.users.query().where("name", "; DROP TABLE users", "x"));
+	}
+}
@@ -0,0 +1,129 @@
+package com.syter6.jdbr;
+
+import com.syter6.jdbr.models.Product;
+import com.syter6.jdbr.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * Uses a second in-memory database as the replica. It is not replicated to, so its rows tell which database was read.
+ */
+class ReplicaRouterTest {
+
+	private static final String REPLICA_URL = "jdbc:h2:mem:jdbr_replica;MODE=MySQL;DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+
+	public static class CachedProductRepository extends ProductRepository {
+		public CachedProductRepository() {
+			this.enableCache(1000, 60_000);
+		}
+	}
+
+	private static final long READ_YOUR_WRITES_MILLIS = DatabaseConfig.READ_YOUR_WRITES_MILLIS;
+
+	private ProductRepository products;
+
+	@BeforeAll
+	public static void setUpDatabase() {
+		TestDatabase.setUp();
+	}
+
+	@BeforeEach
+	public void setUpReplica() throws SQLException {
+		try (Connection conn = DriverManager.getConnection(REPLICA_URL, "sa", "");
+			 Statement statement = conn.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS product (num INT PRIMARY KEY, name VARCHAR(255) NOT NULL)");
+			statement.execute("TRUNCATE TABLE product");
+			statement.execute("INSERT INTO product VALUES (1, 'Replica')");
+		}
+
+		new ProductRepository().truncate();
+		// The replica isn't replicated to, so reads right after the write below would otherwise go to the primary.
+		DatabaseConfig.READ_YOUR_WRITES_MILLIS = 0;
+		DatabaseAuth.REPLICA_URLS = new String[] {REPLICA_URL};
+		this.products = new ProductRepository();
+		this.products.create(new Product(1, "Primary"));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		DatabaseAuth.REPLICA_URLS = new String[] {};
+		DatabaseConfig.READ_YOUR_WRITES_MILLIS = READ_YOUR_WRITES_MILLIS;
+	}
+
+	@Test
+	public void readsGoToTheReplicaAndWritesToThePrimary() {
+		assertEquals("Replica", this.products.getById(1).name);
+		assertEquals(1, this.products.query().count());
+
+		assertTrue(this.products.create(new Product(2, "Primary")));
+		assertNull(this.products.getById(2));
+
+		Transaction.inTransaction(tx -> {
+			assertEquals("Primary", this.products.getById(1).name);
+			assertEquals(2, this.products.query().count());
+		});
+	}
+
+	@Test
+	public void readsFollowingAWriteSeeTheWrite() {
+		DatabaseConfig.READ_YOUR_WRITES_MILLIS = 60_000;
+
+		assertTrue(this.products.create(new Product(2, "Primary")));
+		assertEquals("Primary", this.products.getById(2).name);
+	}
+
+	@Test
+	public void cacheLoadsReadFromThePrimary() {
+		CachedProductRepository cached = new CachedProductRepository();
+
+		assertEquals("Primary", cached.getById(1).name);
+		assertEquals("Primary", cached.getByIds(List.of(1)).get(1).name);
+
+		// Lookups by other columns still go to the replica.
+		assertEquals("Replica", cached.getBy("name", "Replica").name);
+	}
+
+	@Test
+	public void unavailableReplicasAreSkipped() {
+		DatabaseAuth.REPLICA_URLS = new String[] {"jdbc:h2:mem:jdbr_missing;IFEXISTS=TRUE"};
+		ProductRepository products = new ProductRepository();
+
+		assertEquals("Primary", products.getById(1).name);
+		assertTrue(ReplicaRouter.getInstance().getHealthyReplicas().isEmpty());
+	}
+
+	@Test
+	public void busyReplicasStayInRotation() throws SQLException {
+		ReplicaRouter router = ReplicaRouter.getInstance();
+		ConnectionPool replica = router.getHealthyReplicas().getFirst();
+
+		List<PooledConnection> borrowed = new ArrayList<>();
+		try {
+			while (borrowed.size() < replica.getMaxSize()) {
+				borrowed.add(replica.borrowOutsideTransaction());
+			}
+
+			long start = System.nanoTime();
+			assertEquals("Primary", this.products.getById(1).name);
+			assertTrue(System.nanoTime() - start < 1_000_000_000L, "Expected the read not to wait for the busy replica");
+		} finally {
+			borrowed.forEach(PooledConnection::close);
+		}
+
+		router.checkHealth();
+		assertEquals(List.of(replica), router.getHealthyReplicas());
+		assertEquals("Replica", this.products.getById(1).name);
+	}
+}
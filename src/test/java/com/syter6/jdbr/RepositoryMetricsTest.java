@@ -0,0 +1,113 @@
+package com.syter6.jdbr;
+
+import com.syter6.jdbr.models.Product;
+import com.syter6.jdbr.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepositoryMetricsTest {
+
+	private static class RecordingMetrics extends RepositoryMetrics {
+		private final List<String> slow_queries = new ArrayList<>();
+
+		@Override
+		public void slowQuery(String table, Operation operation, String sql, long acquire_nanos, long execute_nanos, long hydrate_nanos) {
+			this.slow_queries.add(sql);
+		}
+	}
+
+	private RecordingMetrics metrics;
+
+	@BeforeAll
+	public static void setUpDatabase() {
+		TestDatabase.setUp();
+	}
+
+	@BeforeEach
+	public void listen() {
+		this.metrics = new RecordingMetrics();
+		DatabaseConfig.LISTENER = this.metrics;
+	}
+
+	@AfterEach
+	public void restore() {
+		DatabaseConfig.LISTENER = RepositoryMetrics.DEFAULT;
+		DatabaseConfig.SLOW_QUERY_MILLIS = 1000;
+	}
+
+	@Test
+	public void countsOperationsAndRowsPerTable() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+
+		repos.create(new Product(1, "Product 1"));
+		repos.create(new Product(2, "Product 2"));
+		repos.create(new Product(2, "Duplicate"));
+		repos.getById(1);
+		repos.getAll();
+		repos.update(new Product(1, "Changed"));
+		repos.delete(new Product(2, null));
+		repos.truncate();
+
+		RepositoryMetrics.OperationMetrics creates = this.metrics.get("product", Operation.CREATE);
+		assertEquals(3, creates.getCount());
+		assertEquals(1, creates.getErrorCount());
+		assertTrue(creates.getBytesBound() > 0);
+		assertEquals(3, creates.getLatency().getCount());
+
+		assertEquals(1, this.metrics.get("product", Operation.GET_BY).getRows());
+		assertEquals(2, this.metrics.get("product", Operation.GET_ALL).getRows());
+		assertEquals(1, this.metrics.get("product", Operation.UPDATE).getCount());
+		assertEquals(1, this.metrics.get("product", Operation.DELETE).getRows());
+	}
+
+	@Test
+	public void countsUpsertsAndQueries() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+
+		repos.upsert(new Product(1, "Product 1"));
+		repos.upsert(new Product(1, "Changed"));
+		repos.query().where("name", "Changed").list();
+		repos.query().count();
+		repos.truncate();
+
+		assertEquals(2, this.metrics.get("product", Operation.UPSERT).getCount());
+		assertEquals(2, this.metrics.get("product", Operation.QUERY).getCount());
+		assertEquals(2, this.metrics.get("product", Operation.QUERY).getRows());
+	}
+
+	@Test
+	public void reportsSlowQueries() {
+		DatabaseConfig.SLOW_QUERY_MILLIS = 1;
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+		repos.create(new Product(1, "Product 1"));
+
+		String slow = "SELECT * FROM product WHERE (SELECT SUM(X) FROM SYSTEM_RANGE(1, 2000000)) > 0";
+		repos.getAll(slow);
+		repos.truncate();
+
+		assertTrue(this.metrics.slow_queries.contains(slow));
+	}
+
+	@Test
+	public void histogramKeepsPercentilesWithinItsPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int millis = 1; millis <= 100; millis++) {
+			histogram.record(millis * 1_000_000L);
+		}
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(50, histogram.getPercentileMillis(50), 50 * 0.07);
+		assertEquals(99, histogram.getPercentileMillis(99), 99 * 0.07);
+		assertEquals(100, histogram.getPercentileMillis(100), 100 * 0.07);
+	}
+}
@@ -0,0 +1,69 @@
+package com.syter6.jdbr;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaCacheTest {
+
+	@BeforeAll
+	public static void setUpDatabase() {
+		TestDatabase.setUp();
+	}
+
+	@Test
+	public void definitionsAreLoadedOnceAndShared() throws SQLException {
+		ConnectionPool pool = ConnectionPool.getInstance();
+		SchemaCache.invalidateAll();
+
+		List<ColumnDefinition> first = SchemaCache.get(pool, "users");
+		List<ColumnDefinition> second = SchemaCache.get(pool, "users");
+
+		assertSame(first, second);
+		assertEquals("email", first.get(0).name);
+		assertEquals(ColumnDefinitionType.DATE, first.get(3).type);
+	}
+
+	@Test
+	public void invalidateForcesReload() throws SQLException {
+		ConnectionPool pool = ConnectionPool.getInstance();
+
+		List<ColumnDefinition> first = SchemaCache.get(pool, "product");
+		SchemaCache.invalidate(pool.getUrl(), "product");
+		List<ColumnDefinition> second = SchemaCache.get(pool, "product");
+
+		assertNotSame(first, second);
+		assertEquals(first.size(), second.size());
+	}
+
+	@Test
+	public void preloadCachesEveryTable() throws SQLException {
+		ConnectionPool pool = ConnectionPool.getInstance();
+		SchemaCache.invalidateAll();
+
+		int tables = SchemaCache.preload(pool);
+		List<ColumnDefinition> users = SchemaCache.get(pool, "users");
+
+		assertTrue(tables >= 2);
+		assertEquals(6, users.size());
+		assertEquals(ColumnDefinitionType.DECIMAL, users.get(4).type);
+		assertEquals(ColumnDefinitionType.BOOL, users.get(5).type);
+	}
+
+	@Test
+	public void preloadAndLazyLoadAgree() throws SQLException {
+		ConnectionPool pool = ConnectionPool.getInstance();
+
+		SchemaCache.invalidateAll();
+		List<ColumnDefinition> lazy = SchemaCache.get(pool, "users");
+		SchemaCache.preload(pool);
+		List<ColumnDefinition> preloaded = SchemaCache.get(pool, "users");
+
+		assertNotSame(lazy, preloaded);
+		assertEquals(lazy.toString(), preloaded.toString());
+	}
+}
@@ -0,0 +1,39 @@
+package com.syter6.jdbr;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ *
+ * An in-memory H2 database running in MySQL mode, used in place of a live MySQL server.
+ */
+public class TestDatabase {
+
+	public static final String URL = "jdbc:h2:mem:jdbr;MODE=MySQL;DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+
+	private static boolean initialized = false;
+
+	public static synchronized void setUp() {
+		DatabaseAuth.URL = URL;
+		DatabaseAuth.USERNAME = "sa";
+		DatabaseAuth.PASSWORD = "";
+
+		if (initialized) {
+			return;
+		}
+
+		try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+			 Statement statement = conn.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS product (num INT PRIMARY KEY, name VARCHAR(255) NOT NULL)");
+			statement.execute("CREATE TABLE IF NOT EXISTS users (email VARCHAR(255) PRIMARY KEY, name VARCHAR(255), "
+					+ "clearance INT, birthDate DATETIME, grade DECIMAL(4, 2), verified TINYINT(1))");
+			statement.execute("CREATE TABLE IF NOT EXISTS tag (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255))");
+		} catch (SQLException ex) {
+			throw new IllegalStateException("Could not set up the test database", ex);
+		}
+
+		initialized = true;
+	}
+}
@@ -0,0 +1,117 @@
+package com.syter6.jdbr;
+
+import com.syter6.jdbr.models.Product;
+import com.syter6.jdbr.models.User;
+import com.syter6.jdbr.repositories.ProductRepository;
+import com.syter6.jdbr.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionTest {
+
+	private ProductRepository products;
+	private UserRepository users;
+
+	@BeforeAll
+	public static void setUpDatabase() {
+		TestDatabase.setUp();
+	}
+
+	@BeforeEach
+	public void truncate() {
+		this.products = new ProductRepository();
+		this.users = new UserRepository();
+		this.products.truncate();
+		this.users.truncate();
+	}
+
+	@Test
+	public void commitsWorkOnSeveralRepositories() {
+		boolean committed = Transaction.inTransaction(tx -> {
+			this.products.create(new Product(1, "Product 1"));
+			this.users.create(new User("user@example.com", "User", 1, LocalDate.of(2000, 1, 1), 6.0, true));
+		});
+
+		assertTrue(committed);
+		assertNotNull(this.products.getById(1));
+		assertNotNull(this.users.getById("user@example.com"));
+	}
+
+	@Test
+	public void failedOperationRollsBackEverything() {
+		boolean committed = Transaction.inTransaction(tx -> {
+			this.users.create(new User("user@example.com", "User", 1, LocalDate.of(2000, 1, 1), 6.0, true));
+			this.products.create(new Product(1, "Product 1"));
+			this.products.create(new Product(1, "Duplicate"));
+		});
+
+		assertFalse(committed);
+		assertNull(this.products.getById(1));
+		assertNull(this.users.getById("user@example.com"));
+	}
+
+	@Test
+	public void exceptionRollsBackAndIsRethrown() {
+		assertThrows(IllegalStateException.class, () -> Transaction.inTransaction(tx -> {
+			this.products.create(new Product(1, "Product 1"));
+			throw new IllegalStateException("Out of stock");
+		}));
+
+		assertNull(this.products.getById(1));
+	}
+
+	@Test
+	public void savepointOnlyRollsBackItsOwnWork() {
+		boolean[] savepoint_result = new boolean[1];
+
+		boolean committed = Transaction.inTransaction(tx -> {
+			this.products.create(new Product(1, "Product 1"));
+			savepoint_result[0] = tx.savepoint(inner -> {
+				this.products.create(new Product(2, "Product 2"));
+				this.products.create(new Product(1, "Duplicate"));
+			});
+		});
+
+		assertTrue(committed);
+		assertFalse(savepoint_result[0]);
+		assertNotNull(this.products.getById(1));
+		assertNull(this.products.getById(2));
+	}
+
+	@Test
+	public void writesAreInvisibleToOtherConnectionsUntilCommitted() throws Exception {
+		Product[] seen_outside = new Product[1];
+
+		Transaction.inTransaction(tx -> {
+			this.products.create(new Product(1, "Product 1"));
+
+			Thread other = new Thread(() -> seen_outside[0] = new ProductRepository().getById(1));
+			other.start();
+			try {
+				other.join();
+			} catch (InterruptedException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+
+		assertNull(seen_outside[0]);
+		assertNotNull(this.products.getById(1));
+	}
+
+	@Test
+	public void truncateIsRolledBackWithTheTransaction() {
+		this.products.create(new Product(1, "Product 1"));
+
+		Transaction.inTransaction(tx -> {
+			this.products.truncate();
+			tx.setRollbackOnly();
+		});
+
+		assertNotNull(this.products.getById(1));
+	}
+}
@@ -0,0 +1,179 @@
+package com.syter6.jdbr;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypeCodecsTest {
+
+	enum Status { ACTIVE, RETIRED }
+
+	record Location(double latitude, double longitude) {}
+
+	static class Reading {
+		long id;
+		UUID sensor;
+		BigDecimal amount;
+		LocalDateTime taken_at;
+		Instant logged_at;
+		Status status;
+		byte[] payload;
+		Long counter;
+		Location location;
+	}
+
+	static class ReadingRepository extends BaseRepository<Reading> {
+		ReadingRepository() {
+			super("reading", Reading::new);
+		}
+	}
+
+	private ReadingRepository readings;
+
+	@BeforeAll
+	public static void setUpDatabase() throws SQLException {
+		TestDatabase.setUp();
+
+		try (Connection conn = DriverManager.getConnection(TestDatabase.URL, "sa", "");
+			 Statement statement = conn.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS reading (id BIGINT PRIMARY KEY, sensor BINARY(16), amount DECIMAL(30, 10), "
+					+ "taken_at DATETIME, logged_at TIMESTAMP, status VARCHAR(20), payload VARBINARY(64), counter BIGINT, location VARCHAR(64))");
+		}
+
+		TypeCodecs.register(Location.class, new TypeCodec<>() {
+			@Override
+			public void bind(PreparedStatement statement, int index, Location value) throws SQLException {
+				statement.setString(index, value.latitude() + "," + value.longitude());
+			}
+
+			@Override
+			public Location read(ResultSet result_set, int position) throws SQLException {
+				String value = result_set.getString(position);
+				if (value == null) {
+					return null;
+				}
+				String[] parts = value.split(",");
+				return new Location(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]));
+			}
+
+			@Override
+			public int sqlType() {
+				return Types.VARCHAR;
+			}
+		});
+	}
+
+	@AfterAll
+	public static void unregister() {
+		TypeCodecs.unregister(Location.class);
+	}
+
+	@BeforeEach
+	public void truncate() {
+		this.readings = new ReadingRepository();
+		this.readings.truncate();
+	}
+
+	@Test
+	public void columnTypesAreRecognized() {
+		assertEquals(ColumnDefinitionType.LONG, ColumnDefinition.typeFrom("bigint(20) unsigned"));
+		assertEquals(ColumnDefinitionType.DECIMAL, ColumnDefinition.typeFrom("decimal(10,2)"));
+		assertEquals(ColumnDefinitionType.BINARY, ColumnDefinition.typeFrom("binary(16)"));
+		assertEquals(ColumnDefinitionType.DOUBLE, ColumnDefinition.typeFrom("double"));
+		assertEquals(ColumnDefinitionType.DATE, ColumnDefinition.typeFrom("datetime"));
+		assertEquals(ColumnDefinitionType.INT, ColumnDefinition.typeFrom("int(11) unsigned"));
+		assertEquals(ColumnDefinitionType.STRING, ColumnDefinition.typeFrom("CHARACTER VARYING(255)"));
+		assertEquals(ColumnDefinitionType.BOOL, ColumnDefinition.typeFrom("bit(1)"));
+
+		// Contains "int", but isn't one.
+		assertEquals(ColumnDefinitionType.STRING, ColumnDefinition.typeFrom("point"));
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void parsesTextWithTheCodecs() {
+		Reading reading = new Reading();
+		reading.id = 1;
+		reading.sensor = UUID.randomUUID();
+		assertTrue(this.readings.create(reading));
+
+		assertTrue(this.readings.updateField("1", "amount", "0.125", ColumnDefinitionType.STRING));
+		assertTrue(this.readings.updateField("1", "status", "ACTIVE", ColumnDefinitionType.STRING));
+		assertTrue(this.readings.updateField("1", "payload", "0aff", ColumnDefinitionType.BINARY));
+		assertFalse(this.readings.updateField("1", "missing", "1", ColumnDefinitionType.STRING));
+
+		Reading found = this.readings.getById("1");
+		assertEquals(0, new BigDecimal("0.125").compareTo(found.amount));
+		assertEquals(Status.ACTIVE, found.status);
+		assertArrayEquals(new byte[] {10, -1}, found.payload);
+
+		ArrayList<String> values = new ArrayList<>(Arrays.asList("2", reading.sensor.toString(), "1.5",
+				"2024-02-29 13:45:30", "2024-02-29T12:45:30Z", "RETIRED", "0102", "7", null));
+		Reading generated = this.readings.generate(values);
+		assertEquals(reading.sensor, generated.sensor);
+		assertEquals(LocalDateTime.of(2024, 2, 29, 13, 45, 30), generated.taken_at);
+		assertArrayEquals(new byte[] {1, 2}, generated.payload);
+		assertEquals(7L, generated.counter);
+
+		// The Location codec has no text form.
+		values.set(8, "52.37,4.89");
+		assertThrows(UnsupportedOperationException.class, () -> this.readings.generate(values));
+	}
+
+	@Test
+	public void roundTripsEveryBuiltInType() {
+		Reading reading = new Reading();
+		reading.id = Integer.MAX_VALUE + 10L;
+		reading.sensor = UUID.randomUUID();
+		reading.amount = new BigDecimal("12345678901234567890.0123456789");
+		reading.taken_at = LocalDateTime.of(2024, 2, 29, 13, 45, 30);
+		reading.logged_at = Instant.parse("2024-02-29T12:45:30Z");
+		reading.status = Status.RETIRED;
+		reading.payload = new byte[] {1, 2, 3, -1};
+		reading.counter = null;
+		reading.location = new Location(52.37, 4.89);
+
+		assertTrue(this.readings.create(reading));
+
+		Reading found = this.readings.getById(String.valueOf(reading.id));
+		assertEquals(reading.id, found.id);
+		assertEquals(reading.sensor, found.sensor);
+		assertEquals(0, reading.amount.compareTo(found.amount));
+		assertEquals(reading.taken_at, found.taken_at);
+		assertEquals(reading.logged_at, found.logged_at);
+		assertEquals(Status.RETIRED, found.status);
+		assertArrayEquals(reading.payload, found.payload);
+		// Like every numeric column, a missing value is inserted as 0.
+		assertEquals(0L, found.counter);
+		assertEquals(reading.location, found.location);
+
+		assertEquals(1, this.readings.query().where("sensor", reading.sensor).where("status", Status.RETIRED).count());
+
+		found.counter = 5_000_000_000L;
+		found.location = null;
+		assertTrue(this.readings.update(found));
+		Reading updated = this.readings.query().where("id", reading.id).first();
+		assertEquals(5_000_000_000L, updated.counter);
+		assertNull(updated.location);
+
+		assertTrue(this.readings.delete(found));
+		assertEquals(0, this.readings.count());
+	}
+}
@@ -0,0 +1,113 @@
+package com.syter6.jdbr;
+
+import com.syter6.jdbr.models.Product;
+import com.syter6.jdbr.repositories.ProductRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindRepositoryTest {
+
+	private ProductRepository products;
+
+	@BeforeAll
+	public static void setUpDatabase() {
+		TestDatabase.setUp();
+	}
+
+	@BeforeEach
+	public void truncate() {
+		this.products = new ProductRepository();
+		this.products.truncate();
+	}
+
+	@Test
+	public void mergesWritesToTheSameRecord() {
+		AtomicInteger flushes = new AtomicInteger();
+
+		try (WriteBehindRepository<Product> buffered = new WriteBehindRepository<>(this.products, 1000, 1000, 60_000)) {
+			buffered.setFlushListener((records, committed, nanos) -> flushes.incrementAndGet());
+
+			CompletableFuture<Boolean> created = buffered.create(new Product(1, "Product 1"));
+			for (int i = 0; i < 100; i++) {
+				buffered.update(new Product(1, "Update " + i));
+			}
+			buffered.updateField("1", "name", "Renamed", ColumnDefinitionType.STRING);
+			buffered.create(new Product(2, "Product 2"));
+			buffered.delete(new Product(2, "Product 2"));
+
+			assertEquals(2, buffered.getBufferedCount());
+			assertNull(this.products.getById(1));
+
+			assertTrue(buffered.flush().join());
+			assertTrue(created.join());
+			assertEquals(102, buffered.getCoalescedCount());
+		}
+
+		assertEquals("Renamed", this.products.getById(1).name);
+		assertNull(this.products.getById(2));
+		assertEquals(1, flushes.get());
+	}
+
+	@Test
+	public void flushesFullBatchesAndWaitsForRoom() {
+		List<CompletableFuture<Boolean>> creates = new ArrayList<>();
+
+		try (WriteBehindRepository<Product> buffered = new WriteBehindRepository<>(this.products, 50, 20, 60_000)) {
+			for (int i = 1; i <= 500; i++) {
+				creates.add(buffered.create(new Product(i, "Product " + i)));
+			}
+			// Far more than the buffer holds, so most batches were flushed because they were full.
+			assertTrue(buffered.getFlushedCount() >= 400);
+		}
+
+		assertTrue(creates.stream().allMatch(CompletableFuture::join));
+		assertEquals(500, this.products.count());
+	}
+
+	@Test
+	public void writesWaitingForRoomFailWhenClosed() throws InterruptedException {
+		WriteBehindRepository<Product> buffered = new WriteBehindRepository<>(this.products, 1, 1000, 60_000);
+		CompletableFuture<Boolean> created = buffered.create(new Product(1, "Product 1"));
+
+		// The buffer is full, so this writer waits until close() flushes it.
+		CompletableFuture<CompletableFuture<Boolean>> waiting = new CompletableFuture<>();
+		Thread writer = new Thread(() -> waiting.complete(buffered.create(new Product(2, "Product 2"))));
+		writer.start();
+		while (writer.getState() != Thread.State.WAITING) {
+			Thread.sleep(1);
+		}
+
+		buffered.close();
+		writer.join();
+
+		assertTrue(created.join());
+		assertFalse(waiting.join().join());
+		assertEquals(1, this.products.count());
+	}
+
+	@Test
+	public void failingRecordsDontFailTheBatch() {
+		this.products.create(new Product(1, "Existing"));
+
+		WriteBehindRepository<Product> buffered = new WriteBehindRepository<>(this.products);
+		CompletableFuture<Boolean> duplicate = buffered.create(new Product(1, "Duplicate"));
+		CompletableFuture<Boolean> created = buffered.create(new Product(2, "Product 2"));
+
+		assertFalse(duplicate.join());
+		assertTrue(created.join());
+
+		buffered.close();
+		assertFalse(buffered.create(new Product(3, "Product 3")).join());
+
+		assertEquals("Existing", this.products.getById(1).name);
+		assertEquals(2, this.products.count());
+	}
+}
@@ -0,0 +1,284 @@
+package com.syter6.jdbr.repositories;
+
+import com.syter6.jdbr.ConnectionPool;
+import com.syter6.jdbr.Query;
+import com.syter6.jdbr.TestDatabase;
+import com.syter6.jdbr.models.Product;
+import com.syter6.jdbr.models.User;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * Shares a single repository between 64 threads, hammering it at the same time.
+ */
+class ConcurrencyStressTest {
+
+	private static final int THREADS = 64;
+	private static final int OPERATIONS = 50;
+
+	@BeforeAll
+	public static void setUpDatabase() {
+		TestDatabase.setUp();
+	}
+
+	private interface Work {
+		void run(int thread) throws Exception;
+	}
+
+	/**
+	 *
+	 * Starts all threads at once, and rethrows the first failure.
+	 */
+	private static void runConcurrently(Work work) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+
+		List<Future<Void>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			int thread = t;
+			futures.add(executor.submit((Callable<Void>) () -> {
+				start.await();
+				work.run(thread);
+				return null;
+			}));
+		}
+
+		start.countDown();
+		try {
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void concurrentCreatesAreAllStored() throws Exception {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+		AtomicInteger failures = new AtomicInteger();
+
+		runConcurrently(thread -> {
+			for (int i = 0; i < OPERATIONS; i++) {
+				int num = thread * OPERATIONS + i + 1;
+				if (!repos.create(new Product(num, "Product " + num))) {
+					failures.incrementAndGet();
+				}
+			}
+		});
+
+		List<Product> products = repos.getAll();
+		repos.truncate();
+
+		assertEquals(0, failures.get());
+		assertEquals(THREADS * OPERATIONS, products.size());
+	}
+
+	@Test
+	public void concurrentGeneratedKeysAreUnique() throws Exception {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+		AtomicInteger failures = new AtomicInteger();
+
+		runConcurrently(thread -> {
+			for (int i = 0; i < OPERATIONS; i++) {
+				if (!repos.create(new Product(0, "Thread " + thread))) {
+					failures.incrementAndGet();
+				}
+			}
+		});
+
+		List<Product> products = repos.getAll();
+		repos.truncate();
+
+		Set<Integer> nums = new HashSet<>();
+		for (Product product : products) {
+			nums.add(product.num);
+		}
+
+		assertEquals(0, failures.get());
+		assertEquals(THREADS * OPERATIONS, nums.size());
+	}
+
+	@Test
+	public void concurrentUpdatesSeeTheirOwnWrites() throws Exception {
+		UserRepository repos = new UserRepository();
+		repos.truncate();
+
+		List<User> users = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			users.add(new User("user" + t + "@example.com", "User " + t, 0, LocalDate.of(2000, 1, 1), 5.0, false));
+		}
+		assertTrue(repos.createAll(users).isSuccess());
+
+		AtomicInteger mismatches = new AtomicInteger();
+
+		runConcurrently(thread -> {
+			String email = "user" + thread + "@example.com";
+			for (int i = 1; i <= OPERATIONS; i++) {
+				User user = repos.getById(email);
+				user.clearance = i;
+				repos.update(user);
+
+				if (repos.getById(email).clearance != i) {
+					mismatches.incrementAndGet();
+				}
+			}
+		});
+
+		List<User> stored = repos.getAll();
+		repos.truncate();
+
+		assertEquals(0, mismatches.get());
+		for (User user : stored) {
+			assertEquals(OPERATIONS, user.clearance);
+		}
+	}
+
+	@Test
+	public void concurrentDeletesRemoveEveryRow() throws Exception {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+
+		List<Product> products = new ArrayList<>();
+		for (int i = 1; i <= THREADS * OPERATIONS; i++) {
+			products.add(new Product(i, "Product " + i));
+		}
+		repos.createAll(products);
+
+		AtomicInteger deleted = new AtomicInteger();
+
+		runConcurrently(thread -> {
+			for (int i = 0; i < OPERATIONS; i++) {
+				if (repos.delete(new Product(thread * OPERATIONS + i + 1, null))) {
+					deleted.incrementAndGet();
+				}
+			}
+		});
+
+		int remaining = repos.getAll().size();
+
+		assertEquals(THREADS * OPERATIONS, deleted.get());
+		assertEquals(0, remaining);
+	}
+
+	@Test
+	public void coalescedLookupsShareQueries() throws Exception {
+		ProductRepository repos = new ProductRepository() {
+			{
+				this.enableCoalescing(5, 64);
+			}
+		};
+		repos.truncate();
+
+		List<Product> products = new ArrayList<>();
+		for (int i = 1; i <= THREADS; i++) {
+			products.add(new Product(i, "Product " + i));
+		}
+		repos.createAll(products);
+
+		ConnectionPool pool = ConnectionPool.getInstance();
+		long prepared = pool.getStatementCacheHits() + pool.getStatementCacheMisses();
+		AtomicInteger mismatches = new AtomicInteger();
+
+		runConcurrently(thread -> {
+			for (int i = 0; i < OPERATIONS; i++) {
+				Product product = repos.getById(thread + 1);
+				if (product == null || product.num != thread + 1) {
+					mismatches.incrementAndGet();
+				}
+			}
+		});
+
+		long queries = pool.getStatementCacheHits() + pool.getStatementCacheMisses() - prepared;
+		repos.truncate();
+
+		assertEquals(0, mismatches.get());
+		assertTrue(queries < THREADS * OPERATIONS, "Expected fewer queries than lookups, got " + queries);
+	}
+
+	@Test
+	public void parallelScanVisitsEveryRowOnce() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+
+		List<Product> products = new ArrayList<>();
+		for (int i = 1; i <= 5000; i++) {
+			products.add(new Product(i * 3, "Product " + i));
+		}
+		repos.createAll(products);
+
+		Set<Integer> nums = ConcurrentHashMap.newKeySet();
+		long scanned = repos.parallelScan(16, product -> nums.add(product.num));
+		repos.truncate();
+
+		assertEquals(5000, scanned);
+		assertEquals(5000, nums.size());
+	}
+
+	@Test
+	public void parallelScanFailsWhenARangeFails() {
+		// The last range compares the int key with text, which the database refuses.
+		ProductRepository repos = new ProductRepository() {
+			@Override
+			protected List<Query<Product>> partitions(int partitions) {
+				List<Query<Product>> ranges = super.partitions(partitions);
+				ranges.getLast().where("num", ">=", "not a number");
+				return ranges;
+			}
+		};
+		repos.truncate();
+
+		List<Product> products = new ArrayList<>();
+		for (int i = 1; i <= 100; i++) {
+			products.add(new Product(i, "Product " + i));
+		}
+		repos.createAll(products);
+
+		assertThrows(IllegalStateException.class, () -> repos.parallelScan(4, product -> {}));
+		assertThrows(IllegalStateException.class, () -> {
+			try (Stream<Product> stream = repos.parallelStream(4)) {
+				stream.count();
+			}
+		});
+		repos.truncate();
+	}
+
+	@Test
+	public void parallelStreamSplitsStringKeys() {
+		UserRepository repos = new UserRepository();
+		repos.truncate();
+
+		List<User> users = new ArrayList<>();
+		for (int i = 1; i <= 1000; i++) {
+			users.add(new User("user" + i + "@example.com", "User " + i, i, LocalDate.of(2000, 1, 1), 5.0, false));
+		}
+		repos.createAll(users);
+
+		long sum;
+		try (Stream<User> stream = repos.parallelStream(8)) {
+			sum = stream.mapToLong(user -> user.clearance).sum();
+		}
+		repos.truncate();
+
+		assertEquals(1000 * 1001 / 2, sum);
+	}
+}
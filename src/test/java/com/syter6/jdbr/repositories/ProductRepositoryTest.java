@@ -1,12 +1,28 @@
 package com.syter6.jdbr.repositories;
 
+import com.syter6.jdbr.BatchResult;
+import com.syter6.jdbr.ConnectionPool;
+import com.syter6.jdbr.TestDatabase;
+import com.syter6.jdbr.UpsertResult;
 import com.syter6.jdbr.models.Product;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ProductRepositoryTest {
 
+	@BeforeAll
+	public static void setUpDatabase() {
+		TestDatabase.setUp();
+	}
+
 	@Test
 	public void getByReturnsProductWhenFound() {
 		ProductRepository repos = new ProductRepository();
@@ -202,4 +218,220 @@ class ProductRepositoryTest {
 		assertNull(product);
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void streamAllReturnsEveryProduct() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+		repos.create(new Product(1, "Product 1"));
+		repos.create(new Product(2, "Product 2"));
+
+		List<String> names;
+		try (Stream<Product> products = repos.streamAll()) {
+			names = products.map(product -> product.name).toList();
+		}
+		repos.truncate();
+
+		assertEquals(List.of("Product 1", "Product 2"), names);
+	}
+
+	@Test
+	public void closingStreamReturnsConnectionToPool() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+		repos.create(new Product(1, "Product 1"));
+
+		ConnectionPool pool = ConnectionPool.getInstance();
+		long active = pool.getActiveCount();
+
+		Stream<Product> products = repos.stream("SELECT * FROM product WHERE num = 1");
+		long active_while_streaming = pool.getActiveCount();
+		products.close();
+		repos.truncate();
+
+		assertEquals(active + 1, active_while_streaming);
+		assertEquals(active, pool.getActiveCount());
+	}
+
+	@Test
+	public void createAllInsertsInBatches() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+
+		List<Product> products = new ArrayList<>();
+		for (int i = 1; i <= 25; i++) {
+			products.add(new Product(i, "Product " + i));
+		}
+
+		BatchResult result = repos.createAll(products, 10);
+		int count = repos.getAll().size();
+		repos.truncate();
+
+		assertTrue(result.isSuccess());
+		assertEquals(3, result.getBatches().size());
+		assertEquals(25, result.getRowsCommitted());
+		assertEquals(25, count);
+	}
+
+	@Test
+	public void createAllRollsBackFailingBatch() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+
+		BatchResult result = repos.createAll(Stream.of(new Product(1, "Product 1"), new Product(1, "Product 2")));
+		int count = repos.getAll().size();
+		repos.truncate();
+
+		assertFalse(result.isSuccess());
+		assertEquals(0, count);
+	}
+
+	@Test
+	public void updateAllChangesEveryProduct() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+		repos.createAll(List.of(new Product(1, "Product 1"), new Product(2, "Product 2")));
+
+		BatchResult result = repos.updateAll(List.of(new Product(1, "Changed 1"), new Product(2, "Changed 2")));
+		Product product = repos.getById(2);
+		repos.truncate();
+
+		assertTrue(result.isSuccess());
+		assertEquals(2, result.getRowsAffected());
+		assertEquals("Changed 2", product.name);
+	}
+
+	@Test
+	public void deleteAllRemovesOnlyTheGivenProducts() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+		repos.createAll(List.of(new Product(1, "Product 1"), new Product(2, "Product 2"), new Product(3, "Product 3")));
+
+		BatchResult result = repos.deleteAll(List.of(new Product(1, "Product 1"), new Product(3, "Product 3")));
+		List<Product> remaining = repos.getAll();
+		repos.truncate();
+
+		assertEquals(2, result.getRowsAffected());
+		assertEquals(1, remaining.size());
+		assertEquals(2, remaining.get(0).num);
+	}
+
+	@Test
+	public void deleteAllPadsTheLastChunk() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+		List<Product> products = new ArrayList<>();
+		for (int i = 1; i <= 301; i++) {
+			products.add(new Product(i, "Product " + i));
+		}
+		repos.createAll(products);
+
+		// 256 keys, then 44 keys padded up to 64.
+		BatchResult result = repos.deleteAll(products.subList(0, 300));
+		List<Product> remaining = repos.getAll();
+		repos.truncate();
+
+		assertTrue(result.isSuccess());
+		assertEquals(300, result.getRowsAffected());
+		assertEquals(1, remaining.size());
+		assertEquals(301, remaining.get(0).num);
+	}
+
+	@Test
+	public void getByIdsReturnsEveryFoundProductInKeyOrder() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+		List<Product> products = new ArrayList<>();
+		for (int i = 1; i <= 300; i++) {
+			products.add(new Product(i, "Product " + i));
+		}
+		repos.createAll(products);
+
+		List<Integer> keys = new ArrayList<>();
+		for (int i = 300; i >= 1; i -= 2) {
+			keys.add(i);
+		}
+		keys.add(1000);
+
+		Map<Integer, Product> found = repos.getByIds(keys);
+		repos.truncate();
+
+		assertEquals(150, found.size());
+		assertEquals(300, found.keySet().iterator().next());
+		assertEquals("Product 42", found.get(42).name);
+		assertFalse(found.containsKey(1000));
+	}
+
+	@Test
+	public void getAllByReturnsProductsByPrimaryKey() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+		repos.createAll(List.of(new Product(1, "Apple"), new Product(2, "Pear"), new Product(3, "Apple"), new Product(4, "Plum")));
+
+		Map<Object, Product> found = repos.getAllBy("name", List.of("Apple", "Plum"));
+		repos.truncate();
+
+		assertEquals(Set.of(1, 3, 4), found.keySet());
+	}
+
+	@Test
+	public void upsertAllInsertsNewAndUpdatesExistingProducts() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+		repos.createAll(List.of(new Product(1, "Product 1"), new Product(2, "Product 2")));
+
+		UpsertResult result = repos.upsertAll(List.of(new Product(2, "Changed 2"), new Product(3, "Product 3")));
+		boolean upserted = repos.upsert(new Product(1, "Changed 1"));
+		List<Product> products = repos.query().orderBy("num").list();
+		repos.truncate();
+
+		assertTrue(result.isSuccess());
+		assertEquals(1, result.getRowsInserted());
+		assertEquals(1, result.getRowsUpdated());
+		assertTrue(upserted);
+		assertEquals(List.of("Changed 1", "Changed 2", "Product 3"), products.stream().map(product -> product.name).toList());
+	}
+
+	@Test
+	public void createAllIfAbsentSkipsExistingProducts() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+		repos.create(new Product(1, "Product 1"));
+
+		UpsertResult result = repos.createAllIfAbsent(List.of(new Product(1, "Changed 1"), new Product(2, "Product 2")));
+		boolean created = repos.createIfAbsent(new Product(2, "Changed 2"));
+		Product product = repos.getById(1);
+		repos.truncate();
+
+		assertTrue(result.isSuccess());
+		assertEquals(1, result.getRowsInserted());
+		assertEquals(1, result.getRowsUnchanged());
+		assertFalse(created);
+		assertEquals("Product 1", product.name);
+	}
+
+	@Test
+	public void bulkLoadFallsBackToBatchedInsertsWithoutLocalInfile() {
+		ProductRepository repos = new ProductRepository();
+		repos.truncate();
+
+		BatchResult result = repos.bulkLoad(Stream.iterate(1, i -> i + 1).limit(2500).map(i -> new Product(i, "Product " + i)));
+		long count = repos.count();
+		repos.truncate();
+
+		assertTrue(result.isSuccess());
+		assertEquals(2500, result.getRowsCommitted());
+		assertEquals(2500, count);
+	}
+
+	@Test
+	public void truncateRemovesEveryProduct() {
+		ProductRepository repos = new ProductRepository();
+		repos.createAll(List.of(new Product(1, "Product 1"), new Product(2, "Product 2")));
+
+		boolean result = repos.truncate();
+
+		assertTrue(result);
+		assertEquals(0, repos.getAll().size());
+	}
+
+}
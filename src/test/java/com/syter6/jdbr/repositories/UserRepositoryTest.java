@@ -0,0 +1,106 @@
+package com.syter6.jdbr.repositories;
+
+import com.syter6.jdbr.ColumnDefinitionType;
+import com.syter6.jdbr.TestDatabase;
+import com.syter6.jdbr.models.User;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserRepositoryTest {
+
+	@BeforeAll
+	public static void setUpDatabase() {
+		TestDatabase.setUp();
+	}
+
+	@Test
+	public void getByIdReadsEveryColumnType() {
+		UserRepository repos = new UserRepository();
+		repos.truncate();
+		repos.create(new User("user@example.com", "User", 3, LocalDate.of(2000, 2, 29), 7.5, true));
+
+		User user = repos.getById("user@example.com");
+		repos.truncate();
+
+		assertNotNull(user);
+		assertEquals("User", user.name);
+		assertEquals(3, user.clearance);
+		assertEquals(LocalDate.of(2000, 2, 29), user.birthDate);
+		assertEquals(7.5, user.grade);
+		assertTrue(user.verified);
+	}
+
+	@Test
+	public void getAllReadsAllUsers() {
+		UserRepository repos = new UserRepository();
+		repos.truncate();
+		repos.create(new User("a@example.com", "A", 1, LocalDate.of(2000, 1, 1), 6.0, false));
+		repos.create(new User("b@example.com", "B", 2, LocalDate.of(2001, 1, 1), 8.0, true));
+
+		ArrayList<User> users = repos.getAll();
+		repos.truncate();
+
+		assertEquals(2, users.size());
+		assertFalse(users.get(0).verified);
+		assertEquals(LocalDate.of(2001, 1, 1), users.get(1).birthDate);
+	}
+
+	@Test
+	public void updateChangedOnlyWritesChangedColumns() {
+		UserRepository repos = new UserRepository();
+		repos.truncate();
+		repos.create(new User("user@example.com", "User", 3, LocalDate.of(2000, 1, 1), 7.5, false));
+
+		User original = repos.getById("user@example.com");
+		User modified = repos.getById("user@example.com");
+		modified.verified = true;
+		modified.grade = 8.0;
+
+		// Changed behind our back; left alone because the name wasn't modified.
+		repos.updateField("user@example.com", "name", "Renamed", ColumnDefinitionType.STRING);
+
+		boolean result = repos.updateChanged(original, modified);
+		User user = repos.getById("user@example.com");
+		repos.truncate();
+
+		assertTrue(result);
+		assertEquals("Renamed", user.name);
+		assertEquals(8.0, user.grade);
+		assertTrue(user.verified);
+	}
+
+	// Users are looked up by email on every request, and rarely change.
+	static class CachedUserRepository extends UserRepository {
+		CachedUserRepository() {
+			this.enableCache(10_000, 5 * 60 * 1000);
+		}
+	}
+
+	@Test
+	public void getByIdIsServedFromCacheUntilUpdated() {
+		UserRepository repos = new CachedUserRepository();
+		repos.truncate();
+		repos.create(new User("user@example.com", "User", 3, LocalDate.of(2000, 1, 1), 7.5, false));
+
+		long hits = repos.getCache().getHitCount();
+		User first = repos.getById("user@example.com");
+		first.name = "Not saved";
+		User second = new CachedUserRepository().getById("user@example.com");
+		String cached_name = second.name;
+		hits = repos.getCache().getHitCount() - hits;
+
+		second.name = "Saved";
+		repos.update(second);
+		User third = repos.getById("user@example.com");
+		repos.truncate();
+
+		assertEquals("User", cached_name);
+		assertEquals(1, hits);
+		assertEquals("Saved", third.name);
+	}
+}